@@ -0,0 +1,71 @@
+package financeapp.bench;
+
+import financeapp.auth.AuthService;
+import financeapp.auth.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Compare the single-thread and all-cores scores: throughput per thread should stay flat.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AuthBenchmark {
+    private static final int USERS = 1_000;
+    private static final String PASSWORD = "bench-password";
+
+    @Param({"0", "10000"})
+    public int iterations;
+
+    private Path dir;
+    private AuthService authService;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("financeapp-auth-bench");
+        authService = new AuthService(dir.resolve("users.dat"), new PasswordHasher(iterations));
+        for (int i = 0; i < USERS; i++) {
+            authService.register("user" + i, PASSWORD);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean loginSingleThread() {
+        return login();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean loginAllThreads() {
+        return login();
+    }
+
+    private boolean login() {
+        return authService.authenticate("user" + ThreadLocalRandom.current().nextInt(USERS), PASSWORD);
+    }
+}
@@ -0,0 +1,59 @@
+package financeapp.bench;
+
+import financeapp.model.Wallet;
+import financeapp.persistence.FileWalletStore;
+import financeapp.service.TransactionImportService;
+import financeapp.service.WalletService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Covers line reading, tokenizing and amount parsing together with applying the rows to a wallet;
+// with -prof gc the gc.alloc.rate.norm column divided by size gives bytes per imported row.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImportBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Path dir;
+    private Path statement;
+    private TransactionImportService importService;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("financeapp-import-bench");
+        statement = SyntheticWallets.statement(dir, size);
+        importService = new TransactionImportService(new WalletService(new FileWalletStore(dir)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Wallet importFromCsv() {
+        Wallet wallet = new Wallet();
+        importService.importFromCsv(wallet, statement);
+        return wallet;
+    }
+}
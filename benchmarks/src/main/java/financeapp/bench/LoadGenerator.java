@@ -0,0 +1,133 @@
+package financeapp.bench;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Drives a running server (java -cp target/financeapp-1.0.0.jar financeapp.Main --server) with many
+// concurrent sessions. Every session registers, logs in, keeps its connection open until all sessions
+// are connected, then runs its commands one at a time and records the latency of each.
+//
+// Usage: java -cp benchmarks.jar financeapp.bench.LoadGenerator [port] [sessions] [commands per session]
+public final class LoadGenerator {
+    private static final String MENU_PROMPT = "Выберите пункт: ";
+    private static final String SESSION_PROMPT = "]> ";
+    private static final String PASSWORD = "load-password";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int commands = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        CountDownLatch connected = new CountDownLatch(sessions);
+        ExecutorService executor = newExecutor();
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            String login = "load" + i;
+            results.add(executor.submit(() -> runSession(port, login, commands, connected)));
+        }
+        long[] latencies = new long[sessions * commands];
+        int count = 0;
+        int failed = 0;
+        for (Future<long[]> result : results) {
+            try {
+                long[] session = result.get();
+                System.arraycopy(session, 0, latencies, count, session.length);
+                count += session.length;
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("sessions=%d failed=%d commands=%d elapsed=%.1fs throughput=%.0f cmd/s%n",
+                sessions, failed, count, elapsed / 1e9, count / (elapsed / 1e9));
+        if (count > 0) {
+            System.out.printf("latency p50=%.2fms p99=%.2fms max=%.2fms%n", percentile(latencies, count, 0.50),
+                    percentile(latencies, count, 0.99), latencies[count - 1] / 1e6);
+        }
+    }
+
+    private static long[] runSession(int port, String login, int commands, CountDownLatch connected)
+            throws IOException, InterruptedException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream output = socket.getOutputStream();
+            Reader input = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
+            try {
+                await(input, MENU_PROMPT);
+                send(output, "2\n" + login + "\n" + PASSWORD + "\n");
+                await(input, MENU_PROMPT);
+                send(output, "1\n" + login + "\n" + PASSWORD + "\n");
+                await(input, SESSION_PROMPT);
+            } finally {
+                connected.countDown();
+            }
+            connected.await(5, TimeUnit.MINUTES);
+
+            long[] latencies = new long[commands];
+            for (int i = 0; i < commands; i++) {
+                long started = System.nanoTime();
+                send(output, i % 4 == 3 ? "show-summary\n" : "add-income\nSalary\n10\nload\n");
+                await(input, SESSION_PROMPT);
+                latencies[i] = System.nanoTime() - started;
+            }
+            send(output, "logout\n3\n");
+            await(input, "До встречи!");
+            return latencies;
+        }
+    }
+
+    private static void send(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private static void await(Reader input, String marker) throws IOException {
+        StringBuilder tail = new StringBuilder();
+        char[] buffer = new char[4096];
+        while (true) {
+            int read = input.read(buffer);
+            if (read < 0) {
+                throw new IOException("Connection closed while waiting for '" + marker + "'");
+            }
+            tail.append(buffer, 0, read);
+            // Prompts are the last thing the server writes before it blocks for input.
+            if (tail.toString().stripTrailing().endsWith(marker.stripTrailing())) {
+                return;
+            }
+            if (tail.length() > 8 * marker.length()) {
+                tail.delete(0, tail.length() - 2 * marker.length());
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, int count, double fraction) {
+        return sorted[Math.min(count - 1, (int) Math.ceil(fraction * count) - 1)] / 1e6;
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package financeapp.bench;
+
+import financeapp.model.Wallet;
+import financeapp.persistence.FileWalletStore;
+import financeapp.service.FinanceReportService;
+import financeapp.service.WalletService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Wallet wallet;
+    private WalletService walletService;
+    private FinanceReportService reportService;
+
+    @Setup
+    public void setUp() {
+        wallet = SyntheticWallets.wallet(size);
+        walletService = new WalletService(new FileWalletStore(Path.of(System.getProperty("java.io.tmpdir"))));
+        reportService = new FinanceReportService();
+    }
+
+    @Benchmark
+    public String buildSummary() {
+        return reportService.buildSummary("bench", wallet);
+    }
+}
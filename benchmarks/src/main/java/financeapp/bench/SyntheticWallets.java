@@ -0,0 +1,82 @@
+package financeapp.bench;
+
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic wallets and statement files: the same size always produces the same data,
+// so results from different runs and commits can be compared.
+final class SyntheticWallets {
+    static final String[] CATEGORIES = {
+        "Еда", "Транспорт", "Жилье", "Связь", "Здоровье", "Одежда", "Развлечения", "Подарки",
+        "Образование", "Спорт", "Кафе", "Путешествия", "Дом", "Дети", "Животные", "Прочее"
+    };
+    static final String[] INCOME_CATEGORIES = {"Зарплата", "Премия", "Фриланс", "Проценты"};
+
+    private static final long SEED = 42L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private SyntheticWallets() {
+    }
+
+    static Wallet wallet(int size) {
+        Wallet wallet = new Wallet();
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Transaction> batch = new ArrayList<>(1024);
+        for (int i = 0; i < size; i++) {
+            batch.add(transaction(random, i));
+            if (batch.size() == 1024) {
+                wallet.addTransactions(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            wallet.addTransactions(batch);
+        }
+        for (int i = 0; i < CATEGORIES.length; i += 2) {
+            wallet.setBudget(CATEGORIES[i], BigDecimal.valueOf(50_000));
+        }
+        return wallet;
+    }
+
+    static Path statement(Path dir, int size) throws IOException {
+        Path file = dir.resolve("statement-" + size + ".csv");
+        SplittableRandom random = new SplittableRandom(SEED);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("type;category;amount;note\n");
+            for (int i = 0; i < size; i++) {
+                Transaction tx = transaction(random, i);
+                writer.write(tx.getType().name());
+                writer.write(';');
+                writer.write(tx.getCategory());
+                writer.write(';');
+                writer.write(tx.getAmount().toPlainString());
+                writer.write(';');
+                writer.write(tx.getNote());
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static Transaction transaction(SplittableRandom random, int index) {
+        boolean income = random.nextInt(10) == 0;
+        String category = income
+                ? INCOME_CATEGORIES[random.nextInt(INCOME_CATEGORIES.length)]
+                : CATEGORIES[random.nextInt(CATEGORIES.length)];
+        long cents = income ? 100_000 + random.nextLong(10_000_000) : 100 + random.nextLong(500_000);
+        return new Transaction(category, cents, income ? TransactionType.INCOME : TransactionType.EXPENSE,
+                "операция " + (index % 100), START.plusMinutes(index), "");
+    }
+}
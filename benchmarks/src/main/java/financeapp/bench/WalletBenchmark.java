@@ -0,0 +1,68 @@
+package financeapp.bench;
+
+import financeapp.model.Money;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import financeapp.persistence.WalletStore;
+import financeapp.service.WalletService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WalletBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Wallet wallet;
+    private WalletService walletService;
+
+    @Setup
+    public void setUp() {
+        wallet = SyntheticWallets.wallet(size);
+        walletService = new WalletService(new UnusedStore());
+    }
+
+    @Benchmark
+    public Money balance() {
+        return wallet.getBalance();
+    }
+
+    @Benchmark
+    public Map<String, Money> totalsByCategory() {
+        return wallet.totalsByCategory(TransactionType.EXPENSE);
+    }
+
+    @Benchmark
+    public Money remainingBudget() {
+        return walletService.remainingBudget(wallet, SyntheticWallets.CATEGORIES[0]);
+    }
+
+    private static final class UnusedStore implements WalletStore {
+        @Override
+        public Wallet load(String login) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void save(String login, Wallet wallet) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package financeapp.bench;
+
+import financeapp.model.Wallet;
+import financeapp.persistence.FileWalletStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WalletStoreBenchmark {
+    private static final String LOGIN = "bench";
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Path dir;
+    private FileWalletStore store;
+    private Wallet wallet;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("financeapp-store-bench");
+        store = new FileWalletStore(dir);
+        wallet = SyntheticWallets.wallet(size);
+        store.save(LOGIN, wallet);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Wallet load() {
+        return store.load(LOGIN);
+    }
+
+    @Benchmark
+    public void save() {
+        store.save(LOGIN, wallet);
+    }
+}
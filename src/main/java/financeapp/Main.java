@@ -1,11 +1,63 @@
 package financeapp;
 
+import financeapp.app.AppServices;
 import financeapp.app.Application;
+import financeapp.app.BatchRunner;
+import financeapp.app.FinanceServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 public class Main {
-    public static void main(String[] args) {
+    private static final String PASSWORD_VARIABLE = "FINANCEAPP_PASSWORD";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && "--server".equals(args[0])) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : FinanceServer.DEFAULT_PORT;
+            runServer(port);
+            return;
+        }
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            System.exit(runBatch(args));
+        }
         Application application = new Application();
         application.run();
     }
-}
 
+    private static void runServer(int port) throws IOException, InterruptedException {
+        AppServices services = AppServices.create(Path.of("data"));
+        FinanceServer server = new FinanceServer(services, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            services.getWalletService().flush();
+        }, "finance-server-shutdown"));
+        server.start();
+        System.out.println("Сервер слушает 127.0.0.1:" + server.getPort());
+        server.awaitTermination();
+    }
+
+    // --batch <file> --login <login>; the password comes from FINANCEAPP_PASSWORD so it stays out of
+    // the process list. Exit code 0: every command succeeded, 1: some failed, 2: bad arguments or login.
+    private static int runBatch(String[] args) throws IOException {
+        String login = args.length == 4 && "--login".equals(args[2]) ? args[3] : null;
+        String password = System.getenv(PASSWORD_VARIABLE);
+        if (login == null || password == null) {
+            System.err.println("Использование: " + PASSWORD_VARIABLE
+                    + "=<пароль> java financeapp.Main --batch <файл> --login <логин>");
+            return 2;
+        }
+        AppServices services = AppServices.create(Path.of("data"));
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try {
+            int failed = new BatchRunner(services).run(login, password, Path.of(args[1]), output);
+            return failed < 0 ? 2 : failed > 0 ? 1 : 0;
+        } finally {
+            output.flush();
+            services.getWalletService().flush();
+        }
+    }
+}
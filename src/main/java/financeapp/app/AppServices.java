@@ -0,0 +1,121 @@
+package financeapp.app;
+
+import financeapp.auth.AuthService;
+import financeapp.auth.PasswordHasher;
+import financeapp.auth.SessionManager;
+import financeapp.persistence.CachingWalletStore;
+import financeapp.persistence.ColumnarWalletStore;
+import financeapp.persistence.FileWalletStore;
+import financeapp.persistence.JournalingWalletStore;
+import financeapp.persistence.TransferLog;
+import financeapp.persistence.WalletStore;
+import financeapp.service.BudgetAlertEngine;
+import financeapp.service.BulkImportService;
+import financeapp.service.FinanceReportService;
+import financeapp.service.LoginLocks;
+import financeapp.service.TransactionImportService;
+import financeapp.service.TransferService;
+import financeapp.service.WalletService;
+import financeapp.service.WriteBehindSaver;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+// One stack of stores and services per process; console and server sessions all share it.
+public final class AppServices {
+    private static final long DEFAULT_CACHE_WEIGHT = 2_000_000;
+    private static final long DEFAULT_SAVE_DELAY_MILLIS = 500;
+    private static final long DEFAULT_SESSION_TTL_MINUTES = 30;
+    private static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+    private final AuthService authService;
+    private final WalletService walletService;
+    private final FinanceReportService reportService;
+    private final TransferService transferService;
+    private final TransactionImportService importService;
+    private final BulkImportService bulkImportService;
+    private final BudgetAlertEngine alertEngine;
+
+    private AppServices(Path dataDir) {
+        this.authService = new AuthService(dataDir.resolve("users.dat"),
+                new PasswordHasher(Integer.getInteger("financeapp.auth.iterations", 0)),
+                createSessions());
+        LoginLocks locks = new LoginLocks();
+        WalletStore walletStore = createCache(createWalletStore(dataDir.resolve("wallets")), locks);
+        this.walletService = new WalletService(walletStore, locks, createSaver(walletStore, locks));
+        this.reportService = new FinanceReportService();
+        this.transferService = new TransferService(walletService, new TransferLog(dataDir.resolve("transfers")));
+        transferService.recover();
+        this.importService = new TransactionImportService(walletService);
+        this.bulkImportService = new BulkImportService(walletService, importService);
+        this.alertEngine = new BudgetAlertEngine(walletService);
+    }
+
+    public static AppServices create(Path dataDir) {
+        return new AppServices(dataDir);
+    }
+
+    public AuthService getAuthService() {
+        return authService;
+    }
+
+    public WalletService getWalletService() {
+        return walletService;
+    }
+
+    public FinanceReportService getReportService() {
+        return reportService;
+    }
+
+    public TransferService getTransferService() {
+        return transferService;
+    }
+
+    public TransactionImportService getImportService() {
+        return importService;
+    }
+
+    public BulkImportService getBulkImportService() {
+        return bulkImportService;
+    }
+
+    public BudgetAlertEngine getAlertEngine() {
+        return alertEngine;
+    }
+
+    private static WalletStore createWalletStore(Path walletsDir) {
+        String storage = System.getProperty("financeapp.storage", "journal").toLowerCase(Locale.ROOT);
+        return switch (storage) {
+            case "file" -> new FileWalletStore(walletsDir);
+            case "columnar" -> new ColumnarWalletStore(walletsDir);
+            default -> new JournalingWalletStore(walletsDir);
+        };
+    }
+
+    // -Dfinanceapp.session.ttl is the idle timeout in minutes.
+    private static SessionManager createSessions() {
+        Duration ttl = Duration.ofMinutes(Long.getLong("financeapp.session.ttl", DEFAULT_SESSION_TTL_MINUTES));
+        return new SessionManager(ttl, Integer.getInteger("financeapp.session.max", DEFAULT_MAX_SESSIONS));
+    }
+
+    private static WalletStore createCache(WalletStore store, LoginLocks locks) {
+        long weight = Long.getLong("financeapp.cache.weight", DEFAULT_CACHE_WEIGHT);
+        CachingWalletStore.Mode mode = "write-back".equalsIgnoreCase(System.getProperty("financeapp.cache.mode"))
+                ? CachingWalletStore.Mode.WRITE_BACK
+                : CachingWalletStore.Mode.WRITE_THROUGH;
+        return new CachingWalletStore(store, weight, mode, locks);
+    }
+
+    // -Dfinanceapp.save.delay=0 turns write-behind off and saves synchronously after each command.
+    private static WriteBehindSaver createSaver(WalletStore store, LoginLocks locks) {
+        long delay = Long.getLong("financeapp.save.delay", DEFAULT_SAVE_DELAY_MILLIS);
+        if (delay <= 0) {
+            return null;
+        }
+        WriteBehindSaver.Fsync fsync = "none".equalsIgnoreCase(System.getProperty("financeapp.save.fsync"))
+                ? WriteBehindSaver.Fsync.NONE
+                : WriteBehindSaver.Fsync.BATCH;
+        return new WriteBehindSaver(store, locks, Duration.ofMillis(delay), fsync);
+    }
+}
@@ -1,79 +1,170 @@
 package financeapp.app;
 
 import financeapp.auth.AuthService;
+import financeapp.model.Money;
 import financeapp.model.Transaction;
+import financeapp.model.TransactionPage;
+import financeapp.model.TransactionQuery;
 import financeapp.model.TransactionType;
 import financeapp.model.Wallet;
-import financeapp.persistence.FileWalletStore;
+import financeapp.service.BudgetAlertEngine;
+import financeapp.service.BulkImportReport;
+import financeapp.service.BulkImportService;
 import financeapp.service.FinanceReportService;
+import financeapp.service.ImportReport;
 import financeapp.service.TransactionImportService;
 import financeapp.service.TransferService;
 import financeapp.service.WalletService;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Scanner;
 
 public class Application {
-    private static final BigDecimal BUDGET_THRESHOLD = new BigDecimal("0.80");
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int DEFAULT_TREND_MONTHS = 6;
 
-    private final Scanner scanner = new Scanner(System.in);
+    private final Scanner scanner;
+    private final PrintStream out;
+    private final Charset charset;
+    // False on server connections: commands that touch files by path or other users' wallets run
+    // with the server's permissions, so only the local console may use them.
+    private final boolean localFiles;
     private final AuthService authService;
     private final WalletService walletService;
     private final FinanceReportService reportService;
     private final TransferService transferService;
     private final TransactionImportService importService;
+    private final BulkImportService bulkImportService;
+    private final BudgetAlertEngine alertEngine;
 
     public Application() {
-        Path dataDir = Path.of("data");
-        this.authService = new AuthService(dataDir.resolve("users.dat"));
-        this.walletService = new WalletService(new FileWalletStore(dataDir.resolve("wallets")));
-        this.reportService = new FinanceReportService();
-        this.transferService = new TransferService(walletService);
-        this.importService = new TransactionImportService(walletService);
+        this(AppServices.create(Path.of("data")), System.in, System.out, Charset.defaultCharset());
+    }
+
+    public Application(AppServices services, InputStream input, PrintStream out, Charset charset) {
+        this(services, input, out, charset, true);
+    }
+
+    public Application(AppServices services, InputStream input, PrintStream out, Charset charset,
+                       boolean localFiles) {
+        this.localFiles = localFiles;
+        this.scanner = new Scanner(input, charset);
+        this.out = out;
+        this.charset = charset;
+        this.authService = services.getAuthService();
+        this.walletService = services.getWalletService();
+        this.reportService = services.getReportService();
+        this.transferService = services.getTransferService();
+        this.importService = services.getImportService();
+        this.bulkImportService = services.getBulkImportService();
+        this.alertEngine = services.getAlertEngine();
     }
 
     public void run() {
-        System.out.println("=== Консоль управления финансами ===");
+        Runtime.getRuntime().addShutdownHook(new Thread(walletService::flush, "wallet-flush-on-exit"));
+        serve();
+        walletService.flush();
+    }
+
+    // Runs the menu until the user exits or the input ends. The console and every server connection
+    // go through here; only run() owns the process-wide flush.
+    public void serve() {
+        out.println("=== Консоль управления финансами ===");
         boolean running = true;
-        while (running) {
-            printWelcomeMenu();
-            String choice = prompt("Выберите пункт: ").trim();
-            switch (choice) {
-                case "1" -> {
-                    boolean exit = handleLoginFlow();
-                    if (exit) {
-                        running = false;
+        try {
+            while (running) {
+                printWelcomeMenu();
+                String choice = prompt("Выберите пункт: ").trim();
+                switch (choice) {
+                    case "1" -> {
+                        boolean exit = handleLoginFlow();
+                        if (exit) {
+                            running = false;
+                        }
                     }
+                    case "2" -> handleRegistration();
+                    case "3", "exit" -> running = false;
+                    case "4" -> {
+                        boolean exit = handleTokenFlow();
+                        if (exit) {
+                            running = false;
+                        }
+                    }
+                    default -> out.println("Неизвестный пункт меню, попробуйте снова.");
                 }
-                case "2" -> handleRegistration();
-                case "3", "exit" -> running = false;
-                default -> System.out.println("Неизвестный пункт меню, попробуйте снова.");
             }
+        } catch (NoSuchElementException ex) {
+            // Input closed in the middle of a prompt
         }
-        System.out.println("До встречи!");
+        out.println("До встречи!");
+        out.flush();
     }
 
     private void printWelcomeMenu() {
-        System.out.println();
-        System.out.println("1) Вход");
-        System.out.println("2) Регистрация");
-        System.out.println("3) Выход");
+        out.println();
+        out.println("1) Вход");
+        out.println("2) Регистрация");
+        out.println("3) Выход");
+        out.println("4) Вход по токену");
     }
 
     private boolean handleLoginFlow() {
         String login = prompt("Логин: ").trim();
         String password = prompt("Пароль: ").trim();
-        if (!authService.authenticate(login, password)) {
-            System.out.println("Неверный логин или пароль.");
+        Optional<String> token = authService.login(login, password);
+        if (token.isEmpty()) {
+            out.println("Неверный логин или пароль.");
+            return false;
+        }
+        out.println("Токен сессии: " + token.get());
+        return enterSession(token.get(), login);
+    }
+
+    // Resumes a session with the token printed at login, without sending the password again.
+    private boolean handleTokenFlow() {
+        String token = prompt("Токен: ").trim();
+        Optional<String> login = authService.attach(token);
+        if (login.isEmpty()) {
+            out.println("Токен недействителен или истёк.");
             return false;
         }
-        Wallet wallet = walletService.loadWallet(login);
-        return runSession(login, wallet);
+        return enterSession(token, login.get());
+    }
+
+    // The token is attached for as long as the session runs. logout and exit revoke it; a dropped
+    // connection only detaches it, so the client can come back with it.
+    private boolean enterSession(String token, String login) {
+        walletService.openSession(login);
+        try {
+            Wallet wallet = walletService.loadWallet(login);
+            try (BudgetAlertEngine.Subscription alerts =
+                         walletService.getLocks().call(login, () -> alertEngine.attach(wallet))) {
+                return runSession(token, login, wallet, alerts);
+            }
+        } finally {
+            authService.detach(token);
+            walletService.closeSession(login);
+        }
     }
 
     private void handleRegistration() {
@@ -82,232 +173,352 @@ public class Application {
         try {
             boolean registered = authService.register(login, password);
             if (registered) {
-                System.out.println("Аккаунт создан. Теперь можно войти.");
+                out.println("Аккаунт создан. Теперь можно войти.");
             } else {
-                System.out.println("Пользователь уже существует.");
+                out.println("Пользователь уже существует.");
             }
         } catch (IllegalArgumentException ex) {
-            System.out.println("Ошибка регистрации: " + ex.getMessage());
+            out.println("Ошибка регистрации: " + ex.getMessage());
         }
     }
 
-    private boolean runSession(String login, Wallet wallet) {
-        System.out.println();
-        System.out.println("Добро пожаловать, " + login + "!");
+    private boolean runSession(String token, String login, Wallet wallet, BudgetAlertEngine.Subscription alerts) {
+        out.println();
+        out.println("Добро пожаловать, " + login + "!");
         printHelp();
         boolean exitApplication = false;
         boolean activeSession = true;
         while (activeSession) {
-            System.out.print("[" + login + "]> ");
+            out.print("[" + login + "]> ");
+            out.flush();
             if (!scanner.hasNextLine()) {
                 break;
             }
-            String command = scanner.nextLine().trim().toLowerCase(Locale.ROOT);
-            if (command.isEmpty()) {
+            List<String> words = splitArguments(scanner.nextLine());
+            if (words.isEmpty()) {
                 continue;
             }
+            if (authService.validate(token).isEmpty()) {
+                out.println("Сессия завершена, войдите снова.");
+                break;
+            }
+            String command = words.get(0).toLowerCase(Locale.ROOT);
+            String[] args = words.subList(1, words.size()).toArray(new String[0]);
             try {
                 switch (command) {
                     case "help" -> printHelp();
-                    case "add-income" -> {
-                        addIncome(wallet);
-                        autoSave(login, wallet);
-                    }
-                    case "add-expense" -> {
-                        addExpense(wallet);
-                        autoSave(login, wallet);
-                    }
-                    case "set-budget" -> {
-                        setBudget(wallet);
-                        autoSave(login, wallet);
-                    }
-                    case "show-summary" -> showSummary(login, wallet);
-                    case "view-budgets" -> viewBudgets(wallet);
-                    case "list-transactions" -> listTransactions(wallet);
-                    case "category-summary" -> showCategorySummary(wallet);
-                    case "export-summary" -> exportSummary(login, wallet);
-                    case "transfer" -> {
-                        performTransfer(login, wallet);
-                        autoSave(login, wallet);
-                    }
-                    case "rename-category" -> {
-                        renameCategory(wallet);
-                        autoSave(login, wallet);
-                    }
-                    case "import-transactions" -> {
-                        importTransactions(login, wallet);
-                        autoSave(login, wallet);
-                    }
+                    case "add-income" -> addIncome(login, wallet);
+                    case "add-expense" -> addExpense(login, wallet);
+                    case "set-budget" -> setBudget(login, wallet);
+                    case "show-summary" -> locked(login, () -> showSummary(login, wallet));
+                    case "view-budgets" -> locked(login, () -> viewBudgets(wallet));
+                    case "month-report" -> locked(login, () -> showMonthReport(wallet, args));
+                    case "trend" -> locked(login, () -> showTrend(wallet, args));
+                    case "list-transactions" -> locked(login, () -> listTransactions(wallet, args));
+                    case "category-summary" -> showCategorySummary(login, wallet);
+                    case "export-summary" -> localOnly(() -> exportSummary(login, wallet));
+                    case "export-statement" -> localOnly(() -> exportStatement(login, wallet));
+                    case "transfer" -> performTransfer(login, wallet);
+                    case "rename-category" -> renameCategory(login, wallet);
+                    case "import-transactions" -> localOnly(() -> importTransactions(login, wallet));
+                    case "bulk-import" -> localOnly(() -> bulkImport(login));
                     case "save" -> {
                         autoSave(login, wallet);
-                        System.out.println("Кошелек сохранен.");
+                        out.println("Кошелек сохранен.");
                     }
                     case "logout" -> {
                         autoSave(login, wallet);
+                        authService.logout(token);
                         activeSession = false;
                     }
                     case "exit" -> {
                         autoSave(login, wallet);
+                        authService.logout(token);
                         activeSession = false;
                         exitApplication = true;
                     }
-                    default -> System.out.println("Неизвестная команда. Введите 'help' для списка команд.");
+                    default -> out.println("Неизвестная команда. Введите 'help' для списка команд.");
                 }
             } catch (IllegalArgumentException ex) {
-                System.out.println("Ошибка валидации: " + ex.getMessage());
-            } catch (IllegalStateException ex) {
-                System.out.println("Не удалось выполнить операцию: " + ex.getMessage());
+                out.println("Ошибка валидации: " + ex.getMessage());
+            } catch (IllegalStateException | ArithmeticException ex) {
+                out.println("Не удалось выполнить операцию: " + ex.getMessage());
             }
+            // Also picks up crossings caused by transfers from other sessions since the last command.
+            alerts.drain().forEach(alert -> out.println(alert.message()));
         }
         return exitApplication;
     }
 
-    private void addIncome(Wallet wallet) {
+    private void addIncome(String login, Wallet wallet) {
         String category = prompt("Категория дохода: ");
         BigDecimal amount = readAmount("Сумма: ");
         String note = prompt("Комментарий: ");
-        walletService.addIncome(wallet, category, amount, note);
-        System.out.println("Доход добавлен.");
-        warnIfExpensesExceedIncome(wallet);
+        locked(login, () -> {
+            walletService.addIncome(wallet, category, amount, note);
+            autoSave(login, wallet);
+            out.println("Доход добавлен.");
+        });
     }
 
-    private void addExpense(Wallet wallet) {
+    private void addExpense(String login, Wallet wallet) {
         String category = prompt("Категория расхода: ");
         BigDecimal amount = readAmount("Сумма: ");
         String note = prompt("Комментарий: ");
-        walletService.addExpense(wallet, category, amount, note);
-        System.out.println("Расход добавлен.");
-        warnBudgetStatus(category, wallet);
-        warnIfExpensesExceedIncome(wallet);
-        warnLowBalance(wallet);
+        locked(login, () -> {
+            walletService.addExpense(wallet, category, amount, note);
+            autoSave(login, wallet);
+            out.println("Расход добавлен.");
+        });
     }
 
-    private void setBudget(Wallet wallet) {
+    private void setBudget(String login, Wallet wallet) {
         String category = prompt("Категория бюджета: ");
         BigDecimal amount = readAmount("Месячный лимит: ");
-        walletService.setBudget(wallet, category, amount);
-        System.out.println("Бюджет сохранен.");
+        locked(login, () -> {
+            walletService.setBudget(wallet, category, amount);
+            autoSave(login, wallet);
+            out.println("Бюджет сохранен.");
+        });
     }
 
     private void showSummary(String login, Wallet wallet) {
-        String summary = reportService.buildSummary(login, wallet, walletService);
-        System.out.println(summary);
+        String summary = reportService.buildSummary(login, wallet);
+        out.println(summary);
         warnOverspend(wallet);
     }
 
     private void warnOverspend(Wallet wallet) {
         if (walletService.totalExpense(wallet).compareTo(walletService.totalIncome(wallet)) > 0) {
-            System.out.println("Внимание: расходы уже превысили доходы.");
+            out.println("Внимание: расходы уже превысили доходы.");
         }
     }
 
     private void viewBudgets(Wallet wallet) {
         if (wallet.getBudgets().isEmpty()) {
-            System.out.println("Бюджеты не заданы.");
+            out.println("Бюджеты не заданы.");
             return;
         }
         wallet.getBudgets().entrySet().stream()
                 .sorted(Map.Entry.comparingByKey(String.CASE_INSENSITIVE_ORDER))
                 .forEach(entry -> {
                     String category = entry.getKey();
-                    BigDecimal remaining = walletService.remainingBudget(wallet, category);
-                    System.out.println(category + ": " + entry.getValue() +
-                            ", остаток: " + (remaining == null ? "н/д" : remaining));
+                    Money remaining = walletService.remainingBudget(wallet, category);
+                    out.println(category + ": " + entry.getValue() +
+                            ", остаток в этом месяце: " + (remaining == null ? "н/д" : remaining));
                 });
     }
 
-    private void listTransactions(Wallet wallet) {
+    private void showMonthReport(Wallet wallet, String[] args) {
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i < args.length; i += 2) {
+            String option = args[i].toLowerCase(Locale.ROOT);
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не указано значение параметра " + option);
+            }
+            if (!option.equals("--month")) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + option);
+            }
+            month = parseMonth(option, args[i + 1]);
+        }
+        out.print(reportService.monthlyReport(wallet, month));
+    }
+
+    private void showTrend(Wallet wallet, String[] args) {
+        String category = null;
+        int months = DEFAULT_TREND_MONTHS;
+        YearMonth last = YearMonth.now();
+        for (int i = 0; i < args.length; i += 2) {
+            String option = args[i].toLowerCase(Locale.ROOT);
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не указано значение параметра " + option);
+            }
+            String value = args[i + 1];
+            switch (option) {
+                case "--category" -> category = value;
+                case "--months" -> months = parseCount(option, value, 1);
+                case "--to" -> last = parseMonth(option, value);
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + option);
+            }
+        }
+        out.print(reportService.trendReport(category, walletService.expenseTrend(wallet, category, last, months)));
+    }
+
+    private static YearMonth parseMonth(String option, String value) {
+        try {
+            return YearMonth.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Параметр " + option + " ожидает месяц в формате ГГГГ-ММ");
+        }
+    }
+
+    private void listTransactions(Wallet wallet, String[] args) {
         if (wallet.getTransactions().isEmpty()) {
-            System.out.println("Операций пока нет.");
+            out.println("Операций пока нет.");
             return;
         }
-        wallet.getTransactions().stream()
-                .sorted(Comparator.comparing(Transaction::getTimestamp))
-                .forEach(tx -> System.out.println(tx.getTimestamp() + " | " +
-                        tx.getType() + " | " +
-                        tx.getCategory() + " | " +
-                        tx.getAmount() + " | " +
-                        tx.getNote()));
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        String category = null;
+        int page = 1;
+        int size = DEFAULT_PAGE_SIZE;
+        int cursor = -1;
+        for (int i = 0; i < args.length; i += 2) {
+            String option = args[i].toLowerCase(Locale.ROOT);
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не указано значение параметра " + option);
+            }
+            String value = args[i + 1];
+            switch (option) {
+                case "--page" -> page = parseCount(option, value, 1);
+                case "--size" -> size = parseCount(option, value, 1);
+                case "--cursor" -> cursor = parseCount(option, value, 0);
+                case "--from" -> from = parseDate(option, value).atStartOfDay();
+                case "--to" -> to = parseDate(option, value).plusDays(1).atStartOfDay();
+                case "--category" -> category = value;
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + option);
+            }
+        }
+        TransactionQuery query = new TransactionQuery(from, to, category);
+        TransactionPage result = cursor >= 0
+                ? walletService.listTransactionsFrom(wallet, query, cursor, size)
+                : walletService.listTransactions(wallet, query, page, size);
+
+        PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, charset), 1 << 16), false);
+        for (Transaction tx : result.items()) {
+            writer.print(tx.getTimestamp());
+            writer.print(" | ");
+            writer.print(tx.getType());
+            writer.print(" | ");
+            writer.print(tx.getCategory());
+            writer.print(" | ");
+            writer.print(tx.getMoney());
+            writer.print(" | ");
+            writer.println(tx.getNote());
+        }
+        if (result.items().isEmpty()) {
+            writer.println("На этой странице операций нет.");
+        }
+        if (result.hasNext()) {
+            writer.println(cursor >= 0
+                    ? "Дальше: list-transactions --cursor " + result.nextCursor() + " (с теми же фильтрами)"
+                    : "Дальше: list-transactions --page " + (page + 1) + " (с теми же фильтрами)");
+        }
+        writer.flush();
     }
 
-    private void showCategorySummary(Wallet wallet) {
+    private static int parseCount(String option, String value, int min) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Параметр " + option + " должен быть целым числом не меньше " + min + ".");
+    }
+
+    private static LocalDate parseDate(String option, String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Параметр " + option + " ожидает дату в формате ГГГГ-ММ-ДД.");
+        }
+    }
+
+    // Splits a command line on whitespace; double quotes keep spaces inside one argument.
+    static List<String> splitArguments(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean pending = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                pending = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (pending) {
+                    words.add(current.toString());
+                    current.setLength(0);
+                    pending = false;
+                }
+            } else {
+                current.append(c);
+                pending = true;
+            }
+        }
+        if (pending) {
+            words.add(current.toString());
+        }
+        return words;
+    }
+
+    private void showCategorySummary(String login, Wallet wallet) {
         String categories = prompt("Категории (через запятую): ");
         if (categories.isBlank()) {
-            System.out.println("Категории не указаны.");
+            out.println("Категории не указаны.");
             return;
         }
-        String report = reportService.categoryBreakdown(wallet, walletService, categories.split(","));
-        System.out.println(report);
+        String report = walletService.getLocks().call(login,
+                () -> reportService.categoryBreakdown(wallet, categories.split(",")));
+        out.println(report);
     }
 
     private void exportSummary(String login, Wallet wallet) {
         String path = prompt("Путь к файлу (например reports/summary.txt): ").trim();
         if (path.isEmpty()) {
-            System.out.println("Нужно указать путь.");
+            out.println("Нужно указать путь.");
+            return;
+        }
+        Path target = Path.of(path);
+        locked(login, () -> reportService.exportSummary(target, login, wallet));
+        out.println("Отчет сохранен в " + target.toAbsolutePath());
+    }
+
+    private void exportStatement(String login, Wallet wallet) {
+        String path = prompt("Путь к файлу (например reports/statement.txt или .txt.gz): ").trim();
+        if (path.isEmpty()) {
+            out.println("Нужно указать путь.");
             return;
         }
         Path target = Path.of(path);
-        String summary = reportService.buildSummary(login, wallet, walletService);
-        reportService.export(target, summary);
-        System.out.println("Отчет сохранен в " + target.toAbsolutePath());
+        locked(login, () -> reportService.exportStatement(target, login, wallet));
+        out.println("Выписка сохранена в " + target.toAbsolutePath());
     }
 
     private void performTransfer(String login, Wallet wallet) {
         String recipient = prompt("Логин получателя: ").trim();
         if (!authService.exists(recipient)) {
-            System.out.println("Пользователь-получатель не найден.");
+            out.println("Пользователь-получатель не найден.");
             return;
         }
         BigDecimal amount = readAmount("Сумма перевода: ");
         String category = prompt("Категория перевода: ");
         transferService.transfer(login, wallet, recipient, amount, category);
-        System.out.println("Перевод выполнен.");
-        warnBudgetStatus(category, wallet);
-        warnIfExpensesExceedIncome(wallet);
-        warnLowBalance(wallet);
-    }
-
-    private void warnBudgetStatus(String category, Wallet wallet) {
-        BigDecimal budget = wallet.getBudgetFor(category);
-        if (budget == null || budget.signum() <= 0) {
-            return;
-        }
-        BigDecimal spent = walletService.expensesForCategory(wallet, category);
-        BigDecimal remaining = budget.subtract(spent).setScale(2, RoundingMode.HALF_UP);
-        if (remaining.compareTo(BigDecimal.ZERO) < 0) {
-            System.out.println("Превышен бюджет по категории: " + category +
-                    ". Перерасход: " + remaining.abs());
-            return;
-        }
-        if (budget.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal ratio = spent.divide(budget, 4, RoundingMode.HALF_UP);
-            if (ratio.compareTo(BUDGET_THRESHOLD) >= 0) {
-                BigDecimal percent = ratio.multiply(BigDecimal.valueOf(100))
-                        .setScale(0, RoundingMode.HALF_UP);
-                System.out.println("Предупреждение: категория '" + category + "' израсходована на " +
-                        percent + "%, остаток " + remaining);
-            }
-        }
+        out.println("Перевод выполнен.");
     }
 
-    private void warnIfExpensesExceedIncome(Wallet wallet) {
-        if (walletService.totalExpense(wallet).compareTo(walletService.totalIncome(wallet)) > 0) {
-            System.out.println("Предупреждение: расходы превышают доходы.");
+    private void localOnly(Runnable command) {
+        if (localFiles) {
+            command.run();
+        } else {
+            out.println("Команда доступна только в локальной консоли.");
         }
     }
 
-    private void warnLowBalance(Wallet wallet) {
-        if (wallet.getBalance().compareTo(BigDecimal.ZERO) <= 0) {
-            System.out.println("Баланс опустился до нуля или стал отрицательным. Пополните кошелек.");
-        }
+    private void locked(String login, Runnable action) {
+        walletService.getLocks().run(login, action);
     }
 
     private void autoSave(String login, Wallet wallet) {
-        walletService.saveWallet(login, wallet);
+        locked(login, () -> walletService.saveWallet(login, wallet));
     }
 
     private String prompt(String message) {
-        System.out.print(message);
+        out.print(message);
+        out.flush();
         return scanner.nextLine();
     }
 
@@ -317,62 +528,109 @@ public class Application {
             try {
                 BigDecimal value = new BigDecimal(input.replace(',', '.'));
                 if (value.signum() <= 0) {
-                    System.out.println("Сумма должна быть положительной.");
+                    out.println("Сумма должна быть положительной.");
                     continue;
                 }
                 return value.setScale(2, RoundingMode.HALF_UP);
             } catch (NumberFormatException ex) {
-                System.out.println("Введите числовое значение.");
+                out.println("Введите числовое значение.");
             }
         }
     }
 
     private void printHelp() {
-        System.out.println("Доступные команды:");
-        System.out.println("  help              - показать этот список");
-        System.out.println("  add-income        - добавить запись о доходе");
-        System.out.println("  add-expense       - добавить запись о расходе");
-        System.out.println("  set-budget        - задать или обновить бюджет категории");
-        System.out.println("  show-summary      - вывести суммарную статистику");
-        System.out.println("  view-budgets      - показать бюджеты и остатки");
-        System.out.println("  list-transactions - вывести все операции");
-        System.out.println("  category-summary  - посчитать выбранные категории");
-        System.out.println("  export-summary    - сохранить отчет в файл");
-        System.out.println("  transfer          - перевести средства другому пользователю");
-        System.out.println("  rename-category   - переименовать категорию в кошельке");
-        System.out.println("  import-transactions - загрузить операции из CSV/TSV файла");
-        System.out.println("  save              - сохранить текущее состояние");
-        System.out.println("  logout            - выйти в главное меню");
-        System.out.println("  exit              - сохранить и закрыть приложение");
-    }
-
-    private void renameCategory(Wallet wallet) {
+        out.println("Доступные команды:");
+        out.println("  help              - показать этот список");
+        out.println("  add-income        - добавить запись о доходе");
+        out.println("  add-expense       - добавить запись о расходе");
+        out.println("  set-budget        - задать или обновить бюджет категории");
+        out.println("  show-summary      - вывести суммарную статистику");
+        out.println("  view-budgets      - показать бюджеты и остатки за текущий месяц");
+        out.println("  month-report      - доходы, расходы и бюджеты за месяц: [--month ГГГГ-ММ]");
+        out.println("  trend             - расходы по месяцам: [--category X] [--months N] [--to ГГГГ-ММ]");
+        out.println("  list-transactions - операции по времени, страницами: [--page N] [--size N]");
+        out.println("                      [--from ГГГГ-ММ-ДД] [--to ГГГГ-ММ-ДД] [--category X] [--cursor N]");
+        out.println("  category-summary  - посчитать выбранные категории");
+        if (localFiles) {
+            out.println("  export-summary    - сохранить отчет в файл (.gz - со сжатием)");
+            out.println("  export-statement  - сохранить все операции в файл (.gz - со сжатием)");
+        }
+        out.println("  transfer          - перевести средства другому пользователю");
+        out.println("  rename-category   - переименовать категорию в кошельке");
+        if (localFiles) {
+            out.println("  import-transactions - загрузить операции из CSV/TSV файла");
+            out.println("  bulk-import       - загрузить каталог файлов <login>.csv в кошельки пользователей");
+        }
+        out.println("  save              - сохранить текущее состояние");
+        out.println("  logout            - выйти в главное меню");
+        out.println("  exit              - сохранить и закрыть приложение");
+    }
+
+    private void renameCategory(String login, Wallet wallet) {
         String from = prompt("Текущее название категории: ").trim();
         String to = prompt("Новое название: ").trim();
         if (from.isEmpty() || to.isEmpty()) {
-            System.out.println("Названия не должны быть пустыми.");
+            out.println("Названия не должны быть пустыми.");
             return;
         }
-        int updated = walletService.renameCategory(wallet, from, to);
+        int updated = walletService.getLocks().call(login, () -> {
+            int changed = walletService.renameCategory(wallet, from, to);
+            autoSave(login, wallet);
+            return changed;
+        });
         if (updated == 0) {
-            System.out.println("Категория не найдена, операции не изменены.");
+            out.println("Категория не найдена, операции не изменены.");
         } else {
-            System.out.println("Категория переименована, обновлено операций: " + updated);
+            out.println("Категория переименована, обновлено операций: " + updated);
         }
     }
 
     private void importTransactions(String login, Wallet wallet) {
         String path = prompt("CSV/TSV файл (type,category,amount,note): ").trim();
         if (path.isEmpty()) {
-            System.out.println("Путь не указан.");
+            out.println("Путь не указан.");
             return;
         }
         try {
-            int count = importService.importFromCsv(wallet, Path.of(path));
-            System.out.println("Импортировано операций: " + count);
-            warnLowBalance(wallet);
+            Path source = Path.of(path);
+            ImportReport report = walletService.getLocks().call(login, () -> {
+                try {
+                    return isLargeFile(source)
+                            ? importService.importParallel(wallet, source)
+                            : importService.importWithReport(wallet, source);
+                } finally {
+                    autoSave(login, wallet);
+                }
+            });
+            out.println("Импортировано операций: " + report.imported());
+            out.println("Скорость: " + report.rowsPerSecond() + " строк/с, выделено памяти: "
+                    + report.allocatedMegabytes() + " МБ");
         } catch (IllegalArgumentException | IllegalStateException ex) {
-            System.out.println("Ошибка импорта: " + ex.getMessage());
+            out.println("Ошибка импорта: " + ex.getMessage());
+        }
+    }
+
+    private void bulkImport(String login) {
+        String path = prompt("Каталог с файлами <login>.csv: ").trim();
+        if (path.isEmpty()) {
+            out.println("Путь не указан.");
+            return;
+        }
+        BulkImportReport report = bulkImportService.importDirectory(Path.of(path),
+                candidate -> !candidate.equalsIgnoreCase(login) && authService.exists(candidate));
+        for (BulkImportReport.Entry entry : report.entries()) {
+            out.println(entry.login() + ": импортировано " + entry.imported()
+                    + (entry.error() == null ? "" : ", ошибка: " + entry.error()));
+        }
+        out.println("Всего импортировано: " + report.imported() + " за "
+                + report.elapsed().toMillis() + " мс, пользователей с ошибками: " + report.failed());
+    }
+
+    private boolean isLargeFile(Path source) {
+        try {
+            return Files.size(source) >= TransactionImportService.PARALLEL_THRESHOLD_BYTES;
+        } catch (IOException e) {
+            return false;
         }
     }
 }
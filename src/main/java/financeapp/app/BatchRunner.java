@@ -0,0 +1,232 @@
+package financeapp.app;
+
+import financeapp.auth.AuthService;
+import financeapp.model.Wallet;
+import financeapp.service.BudgetAlert;
+import financeapp.service.BudgetAlertEngine;
+import financeapp.service.TransferService;
+import financeapp.service.WalletService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+// Runs a script against one wallet without prompts. Each line is either a console-style command
+// ("add-expense food 12.50 \"lunch\"") or a JSON object ({"command":"add-expense","category":"food",
+// "amount":"12.50"}); blank lines and lines starting with '#' are skipped. Every command gets one
+// JSON result line. The wallet is saved once at the end; the final line lists the budget alerts the
+// batch crossed.
+public final class BatchRunner {
+    private final AuthService authService;
+    private final WalletService walletService;
+    private final TransferService transferService;
+    private final BudgetAlertEngine alertEngine;
+
+    public BatchRunner(AppServices services) {
+        this.authService = services.getAuthService();
+        this.walletService = services.getWalletService();
+        this.transferService = services.getTransferService();
+        this.alertEngine = services.getAlertEngine();
+    }
+
+    // Returns the number of commands that failed, or -1 when the credentials were rejected. The token
+    // issued for the batch is revoked at the end.
+    public int run(String login, String password, Path script, Writer output) throws IOException {
+        Optional<String> token = authService.login(login, password);
+        if (token.isEmpty()) {
+            return reject("Неверный логин или пароль.", output);
+        }
+        try {
+            return runScript(token.get(), login, script, output);
+        } finally {
+            authService.logout(token.get());
+        }
+    }
+
+    // Same as the password form for a session that is already logged in, e.g. a server client's;
+    // the token stays valid afterwards. Returns -1 when the token is unknown or expired.
+    public int run(String token, Path script, Writer output) throws IOException {
+        Optional<String> login = authService.attach(token);
+        if (login.isEmpty()) {
+            return reject("Токен недействителен или истёк.", output);
+        }
+        try {
+            return runScript(token, login.get(), script, output);
+        } finally {
+            authService.detach(token);
+        }
+    }
+
+    private int reject(String message, Writer output) throws IOException {
+        output.write("{\"status\":\"error\",\"message\":" + JsonLines.quote(message) + "}\n");
+        output.flush();
+        return -1;
+    }
+
+    private int runScript(String token, String login, Path script, Writer output) throws IOException {
+        walletService.openSession(login);
+        try {
+            Wallet wallet = walletService.loadWallet(login);
+            BudgetAlertEngine.Subscription alerts = walletService.getLocks().call(login, () -> alertEngine.attach(wallet));
+            int commands = 0;
+            int failed = 0;
+            try (alerts; BufferedReader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+                String line;
+                int number = 0;
+                while ((line = reader.readLine()) != null) {
+                    number++;
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+                    commands++;
+                    if (authService.validate(token).isEmpty()) {
+                        output.write("{\"line\":" + number + ",\"status\":\"error\",\"message\":"
+                                + JsonLines.quote("Сессия завершена.") + "}\n");
+                        failed++;
+                        break;
+                    }
+                    if (!execute(login, wallet, number, trimmed, output)) {
+                        failed++;
+                    }
+                }
+            }
+            locked(login, () -> walletService.saveWallet(login, wallet));
+            List<String> found = alerts.drain().stream().map(BudgetAlert::message).toList();
+            output.write("{\"status\":\"done\",\"commands\":" + commands + ",\"failed\":" + failed
+                    + ",\"balance\":" + JsonLines.quote(wallet.getBalance().toString()) + ",\"warnings\":["
+                    + String.join(",", found.stream().map(JsonLines::quote).toList()) + "]}\n");
+            output.flush();
+            return failed;
+        } finally {
+            walletService.closeSession(login);
+        }
+    }
+
+    private boolean execute(String login, Wallet wallet, int number, String line, Writer output)
+            throws IOException {
+        String name = "";
+        try {
+            List<String> command = parse(line);
+            name = command.get(0).toLowerCase(Locale.ROOT);
+            String detail = apply(login, wallet, name, command);
+            output.write("{\"line\":" + number + ",\"command\":" + JsonLines.quote(name) + ",\"status\":\"ok\""
+                    + detail + "}\n");
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException | ArithmeticException ex) {
+            String message = ex.getMessage();
+            output.write("{\"line\":" + number + ",\"command\":" + JsonLines.quote(name)
+                    + ",\"status\":\"error\",\"message\":" + JsonLines.quote(String.valueOf(message)) + "}\n");
+            return false;
+        }
+    }
+
+    private String apply(String login, Wallet wallet, String name, List<String> args) {
+        int required = switch (name) {
+            case "add-income", "add-expense", "set-budget", "rename-category", "transfer" -> 2;
+            default -> 0;
+        };
+        if (args.size() <= required) {
+            throw new IllegalArgumentException("Не хватает аргументов: " + name + " ожидает не меньше " + required);
+        }
+        switch (name) {
+            case "add-income" -> {
+                BigDecimal amount = amount(args.get(2));
+                locked(login, () -> walletService.addIncome(wallet, args.get(1), amount, optional(args, 3)));
+            }
+            case "add-expense" -> {
+                BigDecimal amount = amount(args.get(2));
+                locked(login, () -> walletService.addExpense(wallet, args.get(1), amount, optional(args, 3)));
+            }
+            case "set-budget" -> {
+                BigDecimal amount = amount(args.get(2));
+                locked(login, () -> walletService.setBudget(wallet, args.get(1), amount));
+            }
+            case "rename-category" -> {
+                String from = args.get(1).trim();
+                String to = args.get(2).trim();
+                if (from.isEmpty() || to.isEmpty()) {
+                    throw new IllegalArgumentException("Названия не должны быть пустыми.");
+                }
+                int updated = walletService.getLocks().call(login,
+                        () -> walletService.renameCategory(wallet, from, to));
+                return ",\"updated\":" + updated;
+            }
+            case "transfer" -> {
+                String recipient = args.get(1).trim();
+                if (!authService.exists(recipient)) {
+                    throw new IllegalArgumentException("Пользователь-получатель не найден.");
+                }
+                BigDecimal amount = amount(args.get(2));
+                String category = optional(args, 3);
+                transferService.transfer(login, wallet, recipient, amount, category);
+            }
+            default -> throw new IllegalArgumentException("Неизвестная команда: " + name);
+        }
+        return "";
+    }
+
+    private void locked(String login, Runnable action) {
+        walletService.getLocks().run(login, action);
+    }
+
+    // JSON fields are mapped onto the positional arguments of the console form.
+    private static List<String> parse(String line) {
+        if (!line.startsWith("{")) {
+            List<String> words = Application.splitArguments(line);
+            if (words.isEmpty()) {
+                throw new IllegalArgumentException("Пустая команда");
+            }
+            return words;
+        }
+        Map<String, String> fields = JsonLines.parseObject(line);
+        String name = fields.get("command");
+        if (name == null) {
+            throw new IllegalArgumentException("Не указано поле command");
+        }
+        List<String> order = switch (name.toLowerCase(Locale.ROOT)) {
+            case "add-income", "add-expense" -> List.of("category", "amount", "note");
+            case "set-budget" -> List.of("category", "amount");
+            case "rename-category" -> List.of("from", "to");
+            case "transfer" -> List.of("recipient", "amount", "category");
+            default -> List.of();
+        };
+        List<String> args = new ArrayList<>();
+        args.add(name);
+        for (String field : order) {
+            String value = fields.get(field);
+            if (value == null) {
+                break;
+            }
+            args.add(value);
+        }
+        return args;
+    }
+
+    private static String optional(List<String> args, int index) {
+        return args.size() > index ? args.get(index) : "";
+    }
+
+    private static BigDecimal amount(String text) {
+        BigDecimal value;
+        try {
+            value = new BigDecimal(text.replace(',', '.'));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Некорректная сумма: " + text);
+        }
+        if (value.signum() <= 0) {
+            throw new IllegalArgumentException("Сумма должна быть положительной.");
+        }
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,128 @@
+package financeapp.app;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves the console protocol over TCP on the loopback interface: every connection gets its own
+// Application reading lines from the socket, all sharing one AppServices stack. Connections run on
+// virtual threads when the JVM has them (Java 21+) and on small-stack platform threads otherwise.
+// Clients get the console commands except those that read or write files by path or write to other
+// users' wallets. A client logs in with its password once and reconnects with the printed session token.
+public final class FinanceServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7070;
+
+    private static final int BACKLOG = 4096;
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+
+    private final AppServices services;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    public FinanceServer(AppServices services, int port) throws IOException {
+        this.services = services;
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.connections = newConnectionExecutor();
+        this.acceptor = new Thread(this::acceptLoop, "finance-server-acceptor");
+    }
+
+    public void start() {
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int activeConnections() {
+        return open.size();
+    }
+
+    public void awaitTermination() throws InterruptedException {
+        acceptor.join();
+        connections.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    // Closing the sockets ends every session the same way a disconnect does, so each one still
+    // saves its wallet on the way out.
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+        for (Socket socket : open) {
+            closeQuietly(socket);
+        }
+        connections.shutdown();
+        try {
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                open.add(socket);
+                connections.execute(() -> handle(socket));
+            } catch (IOException e) {
+                // accept fails once the server socket is closed; anything else is retried
+            } catch (RuntimeException e) {
+                // The executor refuses work after close()
+                break;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false,
+                    StandardCharsets.UTF_8);
+            new Application(services, socket.getInputStream(), out, StandardCharsets.UTF_8, false).serve();
+        } catch (IOException | RuntimeException e) {
+            // The client went away; serve() has already closed its session
+        } finally {
+            open.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(null, runnable, "finance-session-" + counter.incrementAndGet(),
+                        PLATFORM_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+}
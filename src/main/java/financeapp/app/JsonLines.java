@@ -0,0 +1,165 @@
+package financeapp.app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for batch files: one flat object per line whose values are strings, numbers,
+// booleans or null. Numbers keep their literal text so amounts are not routed through double.
+final class JsonLines {
+    private JsonLines() {
+    }
+
+    static Map<String, String> parseObject(String line) {
+        Parser parser = new Parser(line);
+        Map<String, String> fields = parser.object();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error();
+        }
+        return fields;
+    }
+
+    static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return fields;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                String value = value();
+                if (value != null) {
+                    fields.put(key, value);
+                }
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return fields;
+                }
+                if (next != ',') {
+                    throw error();
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            int start = position;
+            while (!atEnd() && ",}".indexOf(peek()) < 0 && !Character.isWhitespace(peek())) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw error();
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder builder = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw error();
+                        }
+                        try {
+                            builder.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        } catch (NumberFormatException e) {
+                            throw error();
+                        }
+                        position += 4;
+                    }
+                    default -> builder.append(escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(peek())) {
+                position++;
+            }
+        }
+
+        boolean atEnd() {
+            return position >= text.length();
+        }
+
+        IllegalArgumentException error() {
+            return new IllegalArgumentException("Некорректный JSON в позиции " + (position + 1));
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error();
+            }
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error();
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package financeapp.auth;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class AuthService {
+    private static final Duration DEFAULT_SESSION_TTL = Duration.ofMinutes(30);
+    private static final int DEFAULT_MAX_SESSIONS = 10_000;
+
     private final UserAccountStore store;
     private final PasswordHasher hasher;
+    private final SessionManager sessions;
 
     public AuthService(Path storagePath) {
+        this(storagePath, new PasswordHasher());
+    }
+
+    public AuthService(Path storagePath, PasswordHasher hasher) {
+        this(storagePath, hasher, new SessionManager(DEFAULT_SESSION_TTL, DEFAULT_MAX_SESSIONS));
+    }
+
+    public AuthService(Path storagePath, PasswordHasher hasher, SessionManager sessions) {
         this.store = new UserAccountStore(storagePath);
-        this.hasher = new PasswordHasher();
+        this.hasher = hasher;
+        this.sessions = sessions;
     }
 
     public boolean register(String login, String password) {
@@ -18,15 +34,53 @@ public class AuthService {
         if (store.exists(login)) {
             return false;
         }
-        UserAccount account = new UserAccount(login, hasher.hash(password), LocalDateTime.now());
-        store.save(account);
-        return true;
+        String passwordHash = hasher.encode(password).join();
+        return store.saveIfAbsent(new UserAccount(login, passwordHash, LocalDateTime.now()));
     }
 
     public boolean authenticate(String login, String password) {
-        return store.find(login)
-                .map(account -> account.getPasswordHash().equals(hasher.hash(password)))
-                .orElse(false);
+        return authenticateAsync(login, password).join();
+    }
+
+    // Hashes created with older settings are re-derived with the current ones after a successful login.
+    public CompletableFuture<Boolean> authenticateAsync(String login, String password) {
+        Optional<UserAccount> found = store.find(login);
+        if (found.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        UserAccount account = found.get();
+        return hasher.verify(password, account.getPasswordHash()).thenCompose(valid -> {
+            if (!valid || !hasher.needsRehash(account.getPasswordHash())) {
+                return CompletableFuture.completedFuture(valid);
+            }
+            return hasher.encode(password).thenApply(upgraded -> {
+                store.save(new UserAccount(login, upgraded, account.getCreatedAt()));
+                return true;
+            });
+        });
+    }
+
+    // The password is checked once; later requests and reconnects present the token instead. The
+    // token comes back attached to the caller, who detaches or logs out when its connection ends.
+    public Optional<String> login(String login, String password) {
+        return authenticate(login, password) ? Optional.of(sessions.issue(login, true)) : Optional.empty();
+    }
+
+    public Optional<String> validate(String token) {
+        return sessions.validate(token);
+    }
+
+    public Optional<String> attach(String token) {
+        return sessions.attach(token);
+    }
+
+    // The token stays valid until it has been idle for the session ttl.
+    public void detach(String token) {
+        sessions.detach(token);
+    }
+
+    public void logout(String token) {
+        sessions.invalidate(token);
     }
 
     public boolean exists(String login) {
@@ -37,6 +91,10 @@ public class AuthService {
         if (login == null || login.length() < 3 || login.length() > 32 || login.contains(" ")) {
             throw new IllegalArgumentException("Логин должен содержать от 3 до 32 символов без пробелов.");
         }
+        // Logins name wallet files, so they must never be read as a path.
+        if (login.contains("/") || login.contains("\\") || login.contains("..")) {
+            throw new IllegalArgumentException("Логин не должен содержать '/', '\\' и '..'.");
+        }
     }
 
     private void validatePassword(String password) {
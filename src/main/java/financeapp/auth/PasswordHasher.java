@@ -1,27 +1,140 @@
 package financeapp.auth;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// Stored hashes are either the legacy unsalted SHA-256 hex string or "pbkdf2$<iterations>$<salt>$<hash>".
+// With iterations > 0 new passwords are derived with PBKDF2. Derivations run on a pool sized to the CPU
+// count, off the caller thread, so slow hashes never pile up more threads than there are cores.
 public class PasswordHasher {
-    private final MessageDigest digest;
+    private static final String PBKDF2_PREFIX = "pbkdf2$";
 
-    public PasswordHasher() {
+    private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
         try {
-            this.digest = MessageDigest.getInstance("SHA-256");
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("Unable to initialize SHA-256 digest", e);
         }
+    });
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    private final ExecutorService executor;
+
+    public PasswordHasher() {
+        this(0);
     }
 
-    public synchronized String hash(String value) {
-        byte[] hashed = digest.digest(value.getBytes(StandardCharsets.UTF_8));
-        StringBuilder builder = new StringBuilder();
-        for (byte b : hashed) {
-            builder.append(String.format("%02x", b));
+    public PasswordHasher(int iterations) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("Iterations must not be negative: " + iterations);
         }
-        return builder.toString();
+        this.iterations = iterations;
+        this.executor = createExecutor();
+    }
+
+    public String hash(String value) {
+        MessageDigest digest = SHA_256.get();
+        return toHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public CompletableFuture<String> encode(String password) {
+        if (iterations == 0) {
+            return CompletableFuture.completedFuture(hash(password));
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return CompletableFuture.supplyAsync(() -> PBKDF2_PREFIX + iterations + '$' + toHex(salt) + '$'
+                + toHex(pbkdf2(password, salt, iterations)), executor);
+    }
+
+    public CompletableFuture<Boolean> verify(String password, String stored) {
+        if (!stored.startsWith(PBKDF2_PREFIX)) {
+            return CompletableFuture.completedFuture(matches(hash(password), stored));
+        }
+        StoredPbkdf2 parsed = StoredPbkdf2.parse(stored);
+        if (parsed == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture.supplyAsync(
+                () -> matches(toHex(pbkdf2(password, parsed.salt(), parsed.iterations())), parsed.hash()), executor);
+    }
+
+    // True when the stored hash was produced with other settings than the current ones.
+    public boolean needsRehash(String stored) {
+        if (iterations == 0) {
+            return false;
+        }
+        return !stored.startsWith(PBKDF2_PREFIX + iterations + '$');
     }
-}
 
+    private static boolean matches(String actual, String expected) {
+        return MessageDigest.isEqual(actual.getBytes(StandardCharsets.US_ASCII),
+                expected.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int cost) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, cost, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to derive password hash", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex, i * 2, i * 2 + 2, 16);
+        }
+        return bytes;
+    }
+
+    private record StoredPbkdf2(int iterations, byte[] salt, String hash) {
+        static StoredPbkdf2 parse(String stored) {
+            String[] parts = stored.split("\\$");
+            if (parts.length != 4) {
+                return null;
+            }
+            try {
+                int iterations = Integer.parseInt(parts[1]);
+                return iterations > 0 ? new StoredPbkdf2(iterations, fromHex(parts[2]), parts[3]) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package financeapp.auth;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Tokens are random and opaque; validating one is a single map probe. Expiry slides with every
+// successful validation. When the table is full, expired sessions are purged and, if that is not
+// enough, the sessions closest to expiry are dropped in one batch.
+//
+// A session attached to a live connection neither expires nor is dropped for room; its idle time
+// starts when the last connection detaches. Attaching and dropping both go through compute on the
+// token, so a session is never dropped between the two.
+public class SessionManager {
+    private static final int TOKEN_BYTES = 32;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final long ttlMillis;
+    private final int maxSessions;
+    private final Clock clock;
+
+    public SessionManager(Duration ttl, int maxSessions) {
+        this(ttl, maxSessions, Clock.systemUTC());
+    }
+
+    SessionManager(Duration ttl, int maxSessions, Clock clock) {
+        if (ttl.isNegative() || ttl.isZero() || maxSessions <= 0) {
+            throw new IllegalArgumentException("Session ttl and limit must be positive");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+    }
+
+    public String issue(String login) {
+        return issue(login, false);
+    }
+
+    // An attached token is held by the caller until detach or invalidate.
+    public String issue(String login, boolean attached) {
+        if (sessions.size() >= maxSessions) {
+            evict();
+        }
+        Session session = new Session(login, clock.millis() + ttlMillis, attached ? 1 : 0);
+        while (true) {
+            byte[] bytes = new byte[TOKEN_BYTES];
+            random.nextBytes(bytes);
+            String token = encoder.encodeToString(bytes);
+            if (sessions.putIfAbsent(token, session) == null) {
+                return token;
+            }
+        }
+    }
+
+    public Optional<String> validate(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = clock.millis();
+        if (session.holders == 0 && session.expiresAt <= now) {
+            sessions.computeIfPresent(token, (key, current) -> expired(current, now) ? null : current);
+            return Optional.empty();
+        }
+        session.expiresAt = now + ttlMillis;
+        return Optional.of(session.login);
+    }
+
+    // Validates the token and holds the session for a connection until detach.
+    public Optional<String> attach(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        long now = clock.millis();
+        Session attached = sessions.computeIfPresent(token, (key, session) -> {
+            if (expired(session, now)) {
+                return null;
+            }
+            session.holders++;
+            session.expiresAt = now + ttlMillis;
+            return session;
+        });
+        return attached == null ? Optional.empty() : Optional.of(attached.login);
+    }
+
+    public void detach(String token) {
+        if (token == null) {
+            return;
+        }
+        long now = clock.millis();
+        sessions.computeIfPresent(token, (key, session) -> {
+            session.holders = Math.max(0, session.holders - 1);
+            session.expiresAt = now + ttlMillis;
+            return session;
+        });
+    }
+
+    public boolean invalidate(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    public void invalidateAll(String login) {
+        sessions.values().removeIf(session -> session.login.equals(login));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = clock.millis();
+            for (String token : sessions.keySet()) {
+                sessions.computeIfPresent(token, (key, session) -> expired(session, now) ? null : session);
+            }
+            int excess = sessions.size() - maxSessions + Math.max(1, maxSessions / 8);
+            if (excess <= 0) {
+                return;
+            }
+            // Attached sessions are live connections and stay even if that leaves the table over its limit.
+            List<Map.Entry<String, Session>> oldest = new ArrayList<>();
+            for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+                if (entry.getValue().holders == 0) {
+                    oldest.add(entry);
+                }
+            }
+            oldest.sort(Comparator.comparingLong(entry -> entry.getValue().expiresAt));
+            for (Map.Entry<String, Session> entry : oldest.subList(0, Math.min(excess, oldest.size()))) {
+                sessions.computeIfPresent(entry.getKey(), (key, session) -> session.holders == 0 ? null : session);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static boolean expired(Session session, long now) {
+        return session.holders == 0 && session.expiresAt <= now;
+    }
+
+    private static final class Session {
+        private final String login;
+        private volatile long expiresAt;
+        // Changed only inside compute on the session's token.
+        private volatile int holders;
+
+        Session(String login, long expiresAt, int holders) {
+            this.login = login;
+            this.expiresAt = expiresAt;
+            this.holders = holders;
+        }
+    }
+}
@@ -2,65 +2,572 @@ package financeapp.auth;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class UserAccountStore {
-    private final Path storagePath;
-    private final Map<String, UserAccount> accounts;
+// Accounts are appended to <name>.log and located through <name>.idx, an open-addressing hash table
+// of (hash, log offset) slots. Lookups read the index and the record with positional reads and take
+// no lock; a single writer appends the record, then fills the slot, then updates the index header.
+// Index layout (big-endian): magic, version, log generation, capacity, size, records, covered log
+// length, padded to INDEX_HEADER bytes, followed by capacity slots of (hash int, offset long).
+public class UserAccountStore implements AutoCloseable {
+    private static final int INDEX_MAGIC = 0x46554958;
+    private static final short INDEX_VERSION = 1;
+    private static final int INDEX_HEADER = 64;
+    private static final int SLOT = Integer.BYTES + Long.BYTES;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int COMPACT_THRESHOLD = 1024;
+    private static final int CACHE_LIMIT = 10_000;
+    private static final int CHUNK = 64 * 1024;
+    private static final int MAX_REOPENS = 3;
+
+    private final Path legacyPath;
+    private final Path logPath;
+    private final Path indexPath;
+    private final Map<String, UserAccount> cache = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Handles handles;
+    private volatile boolean closed;
+    // Guarded by writeLock.
+    private long generation;
+    private int size;
+    private long records;
+    private long logLength;
 
     public UserAccountStore(Path storagePath) {
-        this.storagePath = storagePath;
-        this.accounts = loadFromDisk();
+        Path directory = storagePath.toAbsolutePath().getParent();
+        String name = storagePath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        this.legacyPath = storagePath;
+        this.logPath = directory.resolve(base + ".log");
+        this.indexPath = directory.resolve(base + ".idx");
+        try {
+            Files.createDirectories(directory);
+            migrateLegacy();
+            open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open user accounts", e);
+        }
+    }
+
+    public Optional<UserAccount> find(String login) {
+        UserAccount cached = cache.get(login);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        for (int attempt = 0; ; attempt++) {
+            // An interrupted read would close the channels every other reader is using.
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Interrupted while reading user accounts");
+            }
+            Handles current = handles;
+            try {
+                Probe probe = probe(current, login);
+                if (probe.account() != null) {
+                    // putIfAbsent: a save that lands while this read is in flight must not be undone.
+                    trimCache(login);
+                    cache.putIfAbsent(login, probe.account());
+                }
+                return Optional.ofNullable(probe.account());
+            } catch (ClosedByInterruptException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading user accounts", e);
+            } catch (ClosedChannelException e) {
+                // Closed by compaction or by another reader's interrupt; a fresh pair is opened.
+                if (attempt >= MAX_REOPENS) {
+                    throw new IllegalStateException("Unable to read user accounts", e);
+                }
+                reopen(current);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read user accounts", e);
+            }
+        }
+    }
+
+    public boolean exists(String login) {
+        return find(login).isPresent();
+    }
+
+    public void save(UserAccount account) {
+        write(account, true);
+    }
+
+    public boolean saveIfAbsent(UserAccount account) {
+        return write(account, false);
+    }
+
+    public void compact() {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            compact(handles);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to compact user accounts", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (!closed) {
+                closed = true;
+                handles.log.force(true);
+                closeQuietly(handles);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to close user accounts", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean write(UserAccount account, boolean replace) {
+        writeLock.lock();
+        Handles current = handles;
+        try {
+            ensureOpen();
+            Probe probe = probe(current, account.getLogin());
+            if (probe.account() != null && !replace) {
+                return false;
+            }
+            ByteBuffer record = UserLogFormat.record(account);
+            long offset = logLength;
+            writeFully(current.log, record, offset);
+            index(current, probe, UserLogFormat.hash(account.getLogin()), offset, record.capacity());
+            trimCache(account.getLogin());
+            cache.put(account.getLogin(), account);
+            if (records - size >= COMPACT_THRESHOLD && records - size > size) {
+                compact(handles);
+            }
+            return true;
+        } catch (ClosedChannelException e) {
+            // An interrupt closes the channels; reopen so later calls work, but report this write as failed.
+            reopen(current);
+            throw new IllegalStateException("Unable to persist user accounts", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to persist user accounts", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void index(Handles current, Probe probe, int hash, long offset, int length) throws IOException {
+        if (probe.offset() != offset) {
+            writeFully(current.index, slot(hash, offset), slotPosition(probe.slot()));
+            records++;
+            if (probe.account() == null) {
+                size++;
+            }
+        }
+        logLength = offset + length;
+        writeHeader(current);
+        if ((long) size * 2 > current.capacity) {
+            resize(current);
+        }
+    }
+
+    private Probe probe(Handles current, String login) throws IOException {
+        int hash = UserLogFormat.hash(login);
+        int mask = current.capacity - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT);
+        int slot = hash & mask;
+        for (int i = 0; i < current.capacity; i++, slot = (slot + 1) & mask) {
+            buffer.clear();
+            if (!readFully(current.index, buffer, slotPosition(slot))) {
+                throw new IOException("User index is truncated");
+            }
+            long offset = buffer.getLong(Integer.BYTES);
+            if (offset == 0) {
+                return new Probe(slot, 0, null);
+            }
+            if (buffer.getInt(0) == hash) {
+                byte[] body = readBody(current.log, offset);
+                if (body != null) {
+                    UserAccount account = UserLogFormat.decode(body);
+                    if (account.getLogin().equals(login)) {
+                        return new Probe(slot, offset, account);
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("User index is full");
+    }
+
+    private void trimCache(String login) {
+        if (cache.size() >= CACHE_LIMIT && !cache.containsKey(login)) {
+            Iterator<String> keys = cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        FileChannel log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            generation = openLog(log);
+            FileChannel index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (readIndexHeader(index, log.size())) {
+                handles = new Handles(log, index, (int) ((index.size() - INDEX_HEADER) / SLOT));
+                replayTail();
+            } else {
+                index.close();
+                rebuild(log);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    private long openLog(FileChannel log) throws IOException {
+        if (log.size() < UserLogFormat.HEADER) {
+            log.truncate(0);
+            writeFully(log, UserLogFormat.header(1), 0);
+            return 1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(UserLogFormat.HEADER);
+        readFully(log, header, 0);
+        if (header.getInt(0) != UserLogFormat.MAGIC || header.getShort(Integer.BYTES) != UserLogFormat.VERSION) {
+            throw new IllegalStateException("Not a user account log: " + logPath);
+        }
+        return header.getLong(Integer.BYTES + Short.BYTES);
+    }
+
+    private boolean readIndexHeader(FileChannel index, long logSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+        if (index.size() < INDEX_HEADER || !readFully(index, header, 0)) {
+            return false;
+        }
+        header.flip();
+        if (header.getInt() != INDEX_MAGIC || header.getShort() != INDEX_VERSION || header.getLong() != generation) {
+            return false;
+        }
+        int capacity = header.getInt();
+        int indexedSize = header.getInt();
+        long indexedRecords = header.getLong();
+        long indexedLength = header.getLong();
+        if (capacity < 2 || Integer.bitCount(capacity) != 1 || index.size() != INDEX_HEADER + (long) capacity * SLOT
+                || indexedLength < UserLogFormat.HEADER || indexedLength > logSize) {
+            return false;
+        }
+        size = indexedSize;
+        records = indexedRecords;
+        logLength = indexedLength;
+        return true;
+    }
+
+    // Records appended after the last header update (e.g. a crash between the two writes) are indexed
+    // again; a torn record at the end of the log is cut off.
+    private void replayTail() throws IOException {
+        FileChannel log = handles.log;
+        long position = logLength;
+        long end = log.size();
+        while (position < end) {
+            byte[] body = readBody(log, position);
+            if (body == null) {
+                log.truncate(position);
+                break;
+            }
+            UserAccount account = UserLogFormat.decode(body);
+            Handles current = handles;
+            index(current, probe(current, account.getLogin()), UserLogFormat.hash(account.getLogin()), position,
+                    UserLogFormat.RECORD_HEADER + body.length);
+            position = logLength;
+        }
+    }
+
+    private void rebuild(FileChannel log) throws IOException {
+        Map<String, Long> latest = new LinkedHashMap<>();
+        long position = UserLogFormat.HEADER;
+        long count = 0;
+        long end = log.size();
+        while (position < end) {
+            byte[] body = readBody(log, position);
+            if (body == null) {
+                log.truncate(position);
+                break;
+            }
+            latest.put(UserLogFormat.decode(body).getLogin(), position);
+            count++;
+            position += UserLogFormat.RECORD_HEADER + body.length;
+        }
+        int capacity = capacityFor(latest.size());
+        int[] hashes = new int[capacity];
+        long[] offsets = new long[capacity];
+        latest.forEach((login, offset) -> place(hashes, offsets, UserLogFormat.hash(login), offset));
+        size = latest.size();
+        records = count;
+        logLength = position;
+        handles = new Handles(log, replaceIndex(hashes, offsets), capacity);
+    }
+
+    private void resize(Handles current) throws IOException {
+        int capacity = current.capacity * 2;
+        int[] hashes = new int[capacity];
+        long[] offsets = new long[capacity];
+        forEachSlot(current, (hash, offset) -> place(hashes, offsets, hash, offset));
+        handles = new Handles(current.log, replaceIndex(hashes, offsets), capacity);
+        current.index.close();
+    }
+
+    // Live records are copied into a new log generation; slots keep their positions because the
+    // probe sequences only depend on the hashes and on which slots are occupied.
+    private void compact(Handles current) throws IOException {
+        Path compacted = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        int[] hashes = new int[current.capacity];
+        long[] offsets = new long[current.capacity];
+        long nextGeneration = generation + 1;
+        long[] position = {UserLogFormat.HEADER};
+        try (FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(output, UserLogFormat.header(nextGeneration), 0);
+            int[] slot = {0};
+            forEachSlot(current, (hash, offset) -> {
+                int index = slot[0]++;
+                if (offset == 0) {
+                    return;
+                }
+                byte[] body = readBody(current.log, offset);
+                if (body == null) {
+                    throw new IOException("User log record at " + offset + " is damaged");
+                }
+                ByteBuffer record = UserLogFormat.record(body);
+                writeFully(output, record, position[0]);
+                hashes[index] = hash;
+                offsets[index] = position[0];
+                position[0] += record.capacity();
+            }, true);
+            output.force(true);
+        }
+        // The index is written against the new generation first: if the log move never happens the
+        // generation mismatch makes the next open rebuild the index from the old log.
+        generation = nextGeneration;
+        records = size;
+        logLength = position[0];
+        FileChannel index = replaceIndex(hashes, offsets);
+        Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        handles = new Handles(log, index, current.capacity);
+        closeQuietly(current);
+    }
+
+    private FileChannel replaceIndex(int[] hashes, long[] offsets) throws IOException {
+        Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+            buffer.put(indexHeader(hashes.length));
+            long position = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                if (buffer.remaining() < SLOT) {
+                    buffer.flip();
+                    position += writeFully(output, buffer, position);
+                    buffer.clear();
+                }
+                buffer.putInt(hashes[i]).putLong(offsets[i]);
+            }
+            buffer.flip();
+            writeFully(output, buffer, position);
+            output.force(true);
+        }
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
     }
 
-    public synchronized Optional<UserAccount> find(String login) {
-        return Optional.ofNullable(accounts.get(login));
+    private void writeHeader(Handles current) throws IOException {
+        writeFully(current.index, indexHeader(current.capacity), 0);
     }
 
-    public synchronized void save(UserAccount account) {
-        accounts.put(account.getLogin(), account);
-        persist();
+    private ByteBuffer indexHeader(int capacity) {
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+        header.putInt(INDEX_MAGIC).putShort(INDEX_VERSION).putLong(generation).putInt(capacity).putInt(size)
+                .putLong(records).putLong(logLength);
+        header.clear();
+        return header;
     }
 
-    public synchronized boolean exists(String login) {
-        return accounts.containsKey(login);
+    private void forEachSlot(Handles current, SlotVisitor visitor) throws IOException {
+        forEachSlot(current, visitor, false);
     }
 
-    private Map<String, UserAccount> loadFromDisk() {
-        if (Files.notExists(storagePath)) {
-            return new HashMap<>();
+    private void forEachSlot(Handles current, SlotVisitor visitor, boolean includeEmpty) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK - CHUNK % SLOT);
+        long position = INDEX_HEADER;
+        long end = INDEX_HEADER + (long) current.capacity * SLOT;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            if (!readFully(current.index, buffer, position)) {
+                throw new IOException("User index is truncated");
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                int hash = buffer.getInt();
+                long offset = buffer.getLong();
+                if (offset != 0 || includeEmpty) {
+                    visitor.visit(hash, offset);
+                }
+            }
+            position += buffer.limit();
         }
-        try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(storagePath))) {
-            Object object = inputStream.readObject();
-            if (object instanceof Map<?, ?> map) {
-                Map<String, UserAccount> result = new HashMap<>();
+    }
+
+    private void migrateLegacy() throws IOException {
+        if (Files.notExists(legacyPath) || Files.exists(logPath)) {
+            return;
+        }
+        Path temporary = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = writeFully(output, UserLogFormat.header(1), 0);
+            for (UserAccount account : readLegacy().values()) {
+                position += writeFully(output, UserLogFormat.record(account), position);
+            }
+            output.force(true);
+        }
+        Files.move(temporary, logPath, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + ".bak"),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Map<String, UserAccount> readLegacy() {
+        Map<String, UserAccount> result = new LinkedHashMap<>();
+        try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(legacyPath))) {
+            if (inputStream.readObject() instanceof Map<?, ?> map) {
                 for (Map.Entry<?, ?> entry : map.entrySet()) {
                     if (entry.getKey() instanceof String key && entry.getValue() instanceof UserAccount value) {
                         result.put(key, value);
                     }
                 }
-                return result;
             }
         } catch (IOException | ClassNotFoundException ignored) {
-            // Fallback to empty map if file is unreadable
+            // Unreadable legacy files migrate as empty, as they used to load
         }
-        return new HashMap<>();
+        return result;
     }
 
-    private void persist() {
+    private void reopen(Handles stale) {
+        writeLock.lock();
         try {
-            Files.createDirectories(storagePath.getParent());
-            try (ObjectOutputStream outputStream = new ObjectOutputStream(Files.newOutputStream(storagePath))) {
-                outputStream.writeObject(accounts);
+            ensureOpen();
+            if (handles == stale) {
+                closeQuietly(stale);
+                open();
             }
         } catch (IOException e) {
-            throw new IllegalStateException("Unable to persist user accounts", e);
+            throw new IllegalStateException("Unable to reopen user accounts", e);
+        } finally {
+            writeLock.unlock();
         }
     }
-}
 
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("User account store is closed");
+        }
+    }
+
+    private static byte[] readBody(FileChannel log, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(UserLogFormat.RECORD_HEADER);
+        if (offset < UserLogFormat.HEADER || !readFully(log, header, offset)) {
+            return null;
+        }
+        int length = header.getInt(0);
+        if (length <= 0 || length > UserLogFormat.MAX_RECORD) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        if (!readFully(log, body, offset + UserLogFormat.RECORD_HEADER)
+                || !UserLogFormat.intact(body.array(), header.getInt(Integer.BYTES))) {
+            return null;
+        }
+        return body.array();
+    }
+
+    private static void place(int[] hashes, long[] offsets, int hash, long offset) {
+        int mask = hashes.length - 1;
+        int slot = hash & mask;
+        while (offsets[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        offsets[slot] = offset;
+    }
+
+    private static int capacityFor(int accounts) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < accounts * 4L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static ByteBuffer slot(int hash, long offset) {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT);
+        buffer.putInt(hash).putLong(offset).flip();
+        return buffer;
+    }
+
+    private static long slotPosition(int slot) {
+        return INDEX_HEADER + (long) slot * SLOT;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return false;
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static void closeQuietly(Handles stale) {
+        try {
+            stale.log.close();
+            stale.index.close();
+        } catch (IOException ignored) {
+            // The channels are being replaced or the store is closing
+        }
+    }
+
+    private record Handles(FileChannel log, FileChannel index, int capacity) {
+    }
+
+    private record Probe(int slot, long offset, UserAccount account) {
+    }
+
+    private interface SlotVisitor {
+        void visit(int hash, long offset) throws IOException;
+    }
+}
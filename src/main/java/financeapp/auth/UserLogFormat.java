@@ -0,0 +1,89 @@
+package financeapp.auth;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+// Log layout (big-endian):
+//   magic, version, generation,
+//   records: body length (int), CRC32 of the body (int), body.
+// Record body: login (UTF), password hash (UTF), epoch second (long), nano (int).
+final class UserLogFormat {
+    static final int MAGIC = 0x46554C47;
+    static final short VERSION = 1;
+    static final int HEADER = Integer.BYTES + Short.BYTES + Long.BYTES;
+    static final int RECORD_HEADER = 2 * Integer.BYTES;
+    static final int MAX_RECORD = 64 * 1024;
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private UserLogFormat() {
+    }
+
+    static ByteBuffer header(long generation) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(generation).flip();
+        return buffer;
+    }
+
+    static ByteBuffer record(UserAccount account) {
+        return record(body(account));
+    }
+
+    static ByteBuffer record(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + body.length);
+        buffer.putInt(body.length).putInt(checksum(body)).put(body).flip();
+        return buffer;
+    }
+
+    static boolean intact(byte[] body, int checksum) {
+        return checksum(body) == checksum;
+    }
+
+    static UserAccount decode(byte[] body) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+            String login = input.readUTF();
+            String passwordHash = input.readUTF();
+            long second = input.readLong();
+            int nano = input.readInt();
+            LocalDateTime createdAt = second == NO_TIMESTAMP ? null
+                    : LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+            return new UserAccount(login, passwordHash, createdAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // String.hashCode is fixed by the language spec, so the on-disk index stays valid across JVMs.
+    static int hash(String login) {
+        int h = login.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static byte[] body(UserAccount account) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(account.getLogin());
+            output.writeUTF(account.getPasswordHash());
+            LocalDateTime createdAt = account.getCreatedAt();
+            output.writeLong(createdAt == null ? NO_TIMESTAMP : createdAt.toEpochSecond(ZoneOffset.UTC));
+            output.writeInt(createdAt == null ? 0 : createdAt.getNano());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
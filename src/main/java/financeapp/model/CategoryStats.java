@@ -0,0 +1,116 @@
+package financeapp.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class CategoryStats {
+    private static final int TYPES = TransactionType.values().length;
+
+    private String budgetKey;
+    private BigDecimal budget;
+    private long income;
+    private long expense;
+    private int transactionCount;
+    // Categories are matched case-insensitively, but reports group by the exact spelling, so the
+    // per-type sums are also kept for every spelling seen under this key.
+    private final Map<String, NameTotals> byName = new HashMap<>();
+    // Transactions of this key in timeline order, kept by Wallet so category pages can binary search.
+    private List<Transaction> timeline = new ArrayList<>();
+
+    String getBudgetKey() {
+        return budgetKey;
+    }
+
+    BigDecimal getBudget() {
+        return budget;
+    }
+
+    void setBudget(String key, BigDecimal amount) {
+        this.budgetKey = key;
+        this.budget = amount;
+    }
+
+    List<Transaction> getTimeline() {
+        return timeline;
+    }
+
+    void setTimeline(List<Transaction> rows) {
+        this.timeline = rows;
+    }
+
+    long getIncome() {
+        return income;
+    }
+
+    long getExpense() {
+        return expense;
+    }
+
+    int getTransactionCount() {
+        return transactionCount;
+    }
+
+    void checkRecord(Transaction transaction) {
+        Money.add(isIncome(transaction.getType()) ? income : expense, transaction.getAmountMinor());
+    }
+
+    void record(Transaction transaction) {
+        if (isIncome(transaction.getType())) {
+            income = Money.add(income, transaction.getAmountMinor());
+        } else {
+            expense = Money.add(expense, transaction.getAmountMinor());
+        }
+        transactionCount++;
+        byName.computeIfAbsent(transaction.getCategory(), name -> new NameTotals())
+                .add(transaction.getType().ordinal(), transaction.getAmountMinor(), 1);
+    }
+
+    void absorb(CategoryStats other) {
+        income = Money.add(income, other.income);
+        expense = Money.add(expense, other.expense);
+        transactionCount += other.transactionCount;
+        other.byName.forEach((name, totals) -> byName.computeIfAbsent(name, key -> new NameTotals()).absorb(totals));
+    }
+
+    // After a rename every transaction of this key carries the same spelling.
+    void renameTo(String name) {
+        NameTotals merged = new NameTotals();
+        byName.values().forEach(merged::absorb);
+        byName.clear();
+        if (transactionCount > 0) {
+            byName.put(name, merged);
+        }
+    }
+
+    void collectTotals(TransactionType type, Map<String, Money> target) {
+        int ordinal = type.ordinal();
+        byName.forEach((name, totals) -> {
+            if (totals.counts[ordinal] > 0) {
+                target.put(name, Money.ofMinor(totals.sums[ordinal]));
+            }
+        });
+    }
+
+    static boolean isIncome(TransactionType type) {
+        return type == TransactionType.INCOME || type == TransactionType.TRANSFER_IN;
+    }
+
+    private static final class NameTotals {
+        private final long[] sums = new long[TYPES];
+        private final int[] counts = new int[TYPES];
+
+        void add(int type, long amount, int count) {
+            sums[type] = Money.add(sums[type], amount);
+            counts[type] += count;
+        }
+
+        void absorb(NameTotals other) {
+            for (int type = 0; type < TYPES; type++) {
+                add(type, other.sums[type], other.counts[type]);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package financeapp.model;
+
+import java.math.BigDecimal;
+
+public record CategoryTotals(Money income, Money expense, BigDecimal budget) {
+
+    public Money remaining() {
+        return budget == null ? null : Money.of(budget).minus(expense);
+    }
+}
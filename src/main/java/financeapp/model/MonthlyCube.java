@@ -0,0 +1,97 @@
+package financeapp.model;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+// Sums keyed by (year-month, category, type), updated on every write so a month-scoped question is
+// two hash lookups no matter how long the history is. Categories use the same case-insensitive key
+// as budgets; each cell keeps the first spelling seen for display. Rows without a timestamp have no
+// month and are left out.
+final class MonthlyCube {
+    private static final int TYPES = TransactionType.values().length;
+
+    private final Map<YearMonth, Month> months = new HashMap<>();
+
+    void record(Transaction transaction, String key) {
+        if (transaction.getTimestamp() == null) {
+            return;
+        }
+        months.computeIfAbsent(YearMonth.from(transaction.getTimestamp()), month -> new Month())
+                .record(key, transaction);
+    }
+
+    long sum(YearMonth month, String key, TransactionType type) {
+        Month bucket = months.get(month);
+        Cell cell = bucket == null ? null : bucket.cells.get(key);
+        return cell == null ? 0 : cell.sums[type.ordinal()];
+    }
+
+    long total(YearMonth month, TransactionType type) {
+        Month bucket = months.get(month);
+        return bucket == null ? 0 : bucket.totals[type.ordinal()];
+    }
+
+    void collectTotals(YearMonth month, TransactionType type, Map<String, Money> target) {
+        Month bucket = months.get(month);
+        if (bucket == null) {
+            return;
+        }
+        int ordinal = type.ordinal();
+        for (Cell cell : bucket.cells.values()) {
+            if (cell.counts[ordinal] > 0) {
+                target.merge(cell.name, Money.ofMinor(cell.sums[ordinal]), Money::plus);
+            }
+        }
+    }
+
+    // Mirrors Wallet.renameCategory: every row of the source key now carries the target spelling.
+    void rename(String sourceKey, String targetKey, String target) {
+        for (Month bucket : months.values()) {
+            Cell source = bucket.cells.remove(sourceKey);
+            if (source == null) {
+                continue;
+            }
+            Cell destination = bucket.cells.get(targetKey);
+            if (destination == null) {
+                source.name = target;
+                bucket.cells.put(targetKey, source);
+            } else {
+                destination.absorb(source);
+            }
+        }
+    }
+
+    private static final class Month {
+        private final long[] totals = new long[TYPES];
+        private final Map<String, Cell> cells = new HashMap<>();
+
+        void record(String key, Transaction transaction) {
+            int type = transaction.getType().ordinal();
+            long amount = transaction.getAmountMinor();
+            totals[type] = Money.add(totals[type], amount);
+            cells.computeIfAbsent(key, ignored -> new Cell(transaction.getCategory())).add(type, amount, 1);
+        }
+    }
+
+    private static final class Cell {
+        private String name;
+        private final long[] sums = new long[TYPES];
+        private final int[] counts = new int[TYPES];
+
+        Cell(String name) {
+            this.name = name;
+        }
+
+        void add(int type, long amount, int count) {
+            sums[type] = Money.add(sums[type], amount);
+            counts[type] += count;
+        }
+
+        void absorb(Cell other) {
+            for (int type = 0; type < TYPES; type++) {
+                add(type, other.sums[type], other.counts[type]);
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package financeapp.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -8,12 +12,26 @@ import java.util.Objects;
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private final String category;
-    private final BigDecimal amount;
-    private final TransactionType type;
-    private final String note;
-    private final LocalDateTime timestamp;
-    private final String counterparty;
+    // The stream keeps the original BigDecimal "amount" field so existing wallet files stay readable;
+    // files written before transfer ids existed read back with transferId 0.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("category", String.class),
+            new ObjectStreamField("amount", BigDecimal.class),
+            new ObjectStreamField("type", TransactionType.class),
+            new ObjectStreamField("note", String.class),
+            new ObjectStreamField("timestamp", LocalDateTime.class),
+            new ObjectStreamField("counterparty", String.class),
+            new ObjectStreamField("transferId", long.class)
+    };
+
+    private String category;
+    private long amountMinor;
+    private TransactionType type;
+    private String note;
+    private LocalDateTime timestamp;
+    private String counterparty;
+    // Shared by both rows of one transfer, 0 for everything else.
+    private long transferId;
 
     public Transaction(String category,
                        BigDecimal amount,
@@ -21,12 +39,32 @@ public class Transaction implements Serializable {
                        String note,
                        LocalDateTime timestamp,
                        String counterparty) {
+        this(category, Money.toMinor(amount), type, note, timestamp, counterparty);
+    }
+
+    public Transaction(String category,
+                       long amountMinor,
+                       TransactionType type,
+                       String note,
+                       LocalDateTime timestamp,
+                       String counterparty) {
+        this(category, amountMinor, type, note, timestamp, counterparty, 0);
+    }
+
+    public Transaction(String category,
+                       long amountMinor,
+                       TransactionType type,
+                       String note,
+                       LocalDateTime timestamp,
+                       String counterparty,
+                       long transferId) {
         this.category = Objects.requireNonNullElse(category, "Uncategorized");
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.type = type;
         this.note = note == null ? "" : note;
         this.timestamp = timestamp;
         this.counterparty = counterparty == null ? "" : counterparty;
+        this.transferId = transferId;
     }
 
     public String getCategory() {
@@ -34,7 +72,15 @@ public class Transaction implements Serializable {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return BigDecimal.valueOf(amountMinor, 2);
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public Money getMoney() {
+        return Money.ofMinor(amountMinor);
     }
 
     public TransactionType getType() {
@@ -53,7 +99,35 @@ public class Transaction implements Serializable {
         return counterparty;
     }
 
+    public long getTransferId() {
+        return transferId;
+    }
+
     public Transaction withCategory(String newCategory) {
-        return new Transaction(newCategory, amount, type, note, timestamp, counterparty);
+        return new Transaction(newCategory, amountMinor, type, note, timestamp, counterparty, transferId);
+    }
+
+    private void writeObject(ObjectOutputStream outputStream) throws IOException {
+        ObjectOutputStream.PutField fields = outputStream.putFields();
+        fields.put("category", category);
+        fields.put("amount", getAmount());
+        fields.put("type", type);
+        fields.put("note", note);
+        fields.put("timestamp", timestamp);
+        fields.put("counterparty", counterparty);
+        fields.put("transferId", transferId);
+        outputStream.writeFields();
+    }
+
+    private void readObject(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = inputStream.readFields();
+        category = Objects.requireNonNullElse((String) fields.get("category", null), "Uncategorized");
+        BigDecimal amount = (BigDecimal) fields.get("amount", null);
+        amountMinor = amount == null ? 0 : Money.toMinor(amount);
+        type = (TransactionType) fields.get("type", null);
+        note = Objects.requireNonNullElse((String) fields.get("note", null), "");
+        timestamp = (LocalDateTime) fields.get("timestamp", null);
+        counterparty = Objects.requireNonNullElse((String) fields.get("counterparty", null), "");
+        transferId = fields.get("transferId", 0L);
     }
 }
@@ -0,0 +1,12 @@
+package financeapp.model;
+
+import java.util.List;
+
+// nextCursor is the position to continue from (in the timeline, or in the category's own rows for a
+// category query), or -1 when the range is exhausted.
+public record TransactionPage(List<Transaction> items, int nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor >= 0;
+    }
+}
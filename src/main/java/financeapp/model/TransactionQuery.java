@@ -0,0 +1,8 @@
+package financeapp.model;
+
+import java.time.LocalDateTime;
+
+// Filter for paging through the timeline: from is inclusive, to is exclusive, null means open.
+public record TransactionQuery(LocalDateTime from, LocalDateTime to, String category) {
+    public static final TransactionQuery ALL = new TransactionQuery(null, null, null);
+}
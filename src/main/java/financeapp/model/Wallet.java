@@ -1,40 +1,164 @@
 package financeapp.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Wallet implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final Comparator<Transaction> BY_TIMESTAMP = (left, right) ->
+            compareTimestamps(left.getTimestamp(), right.getTimestamp());
 
     private final List<Transaction> transactions = new ArrayList<>();
     private final Map<String, BigDecimal> budgets = new HashMap<>();
+    private transient long[] totals = new long[TransactionType.values().length];
+    private transient Map<String, CategoryStats> categories = new HashMap<>();
+    private transient MonthlyCube monthly = new MonthlyCube();
+    // Same transactions as the list above, ordered by timestamp; rows with equal timestamps keep
+    // insertion order and a missing timestamp sorts first.
+    private transient List<Transaction> timeline = new ArrayList<>();
+    private transient int revision;
+    private transient List<WalletListener> listeners = new CopyOnWriteArrayList<>();
 
     public void addTransaction(Transaction transaction) {
+        index(transaction);
         transactions.add(transaction);
+        insertSorted(timeline, transaction);
+        insertSorted(statsFor(transaction.getCategory()).getTimeline(), transaction);
+        if (!listeners.isEmpty()) {
+            List<Transaction> added = List.of(transaction);
+            listeners.forEach(listener -> listener.transactionsAdded(this, added));
+        }
+    }
+
+    public void addTransactions(List<Transaction> batch) {
+        long[] batchTotals = new long[totals.length];
+        Map<String, CategoryStats> batchCategories = new HashMap<>();
+        for (Transaction transaction : batch) {
+            int type = transaction.getType().ordinal();
+            batchTotals[type] = Money.add(batchTotals[type], transaction.getAmountMinor());
+            batchCategories.computeIfAbsent(transaction.getCategory(), key -> new CategoryStats()).record(transaction);
+        }
+        long[] merged = totals.clone();
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = Money.add(merged[i], batchTotals[i]);
+        }
+        totals = merged;
+        // Month sums never exceed the type totals checked above, so this cannot overflow half way.
+        for (Transaction transaction : batch) {
+            monthly.record(transaction, normalize(transaction.getCategory()));
+        }
+        transactions.addAll(batch);
+        mergeIntoTimeline(batch);
+        batchCategories.forEach((category, stats) -> statsFor(category).absorb(stats));
+        if (!listeners.isEmpty()) {
+            List<Transaction> added = Collections.unmodifiableList(batch);
+            listeners.forEach(listener -> listener.transactionsAdded(this, added));
+        }
+    }
+
+    // Throws the ArithmeticException addTransaction would throw for this transaction, without
+    // changing the wallet.
+    public void checkAdd(Transaction transaction) {
+        Money.add(totals[transaction.getType().ordinal()], transaction.getAmountMinor());
+        CategoryStats stats = categories.get(normalize(transaction.getCategory()));
+        if (stats != null) {
+            stats.checkRecord(transaction);
+        }
+    }
+
+    // Takes back a transaction added earlier, such as one side of a transfer that could not be
+    // completed. Rebuilds the indexes, so it costs a full pass over the wallet; returns false when
+    // this exact instance is not in the wallet.
+    public boolean removeTransaction(Transaction transaction) {
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            if (transactions.get(i) == transaction) {
+                transactions.remove(i);
+                revision++;
+                rebuildIndexes();
+                List<Transaction> removed = List.of(transaction);
+                listeners.forEach(listener -> listener.transactionsRemoved(this, removed));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void addListener(WalletListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(WalletListener listener) {
+        listeners.remove(listener);
     }
 
     public List<Transaction> getTransactions() {
         return Collections.unmodifiableList(transactions);
     }
 
-    public void setBudget(String category, BigDecimal amount) {
-        String existingKey = budgets.keySet().stream()
-                .filter(key -> key.equalsIgnoreCase(category))
-                .findFirst()
-                .orElse(null);
-        if (existingKey != null) {
-            budgets.put(existingKey, amount);
-        } else {
-            budgets.put(category, amount);
+    public List<Transaction> getTimeline() {
+        return Collections.unmodifiableList(timeline);
+    }
+
+    // Transactions with from <= timestamp < to in timestamp order; a null bound is open.
+    public List<Transaction> between(LocalDateTime from, LocalDateTime to) {
+        int start = from == null ? 0 : lowerBound(timeline, from);
+        int end = to == null ? timeline.size() : lowerBound(timeline, to);
+        if (start >= end) {
+            return List.of();
+        }
+        return List.copyOf(timeline.subList(start, end));
+    }
+
+    // Up to count most recent transactions, newest first.
+    public List<Transaction> latest(int count) {
+        int size = timeline.size();
+        int limit = Math.min(Math.max(count, 0), size);
+        List<Transaction> result = new ArrayList<>(limit);
+        for (int i = size - 1; i >= size - limit; i--) {
+            result.add(timeline.get(i));
         }
+        return result;
+    }
+
+    // Up to limit transactions matching the query, starting at a cursor returned by cursorAt or
+    // by a previous page. A category query walks that category's own timeline, so either way this
+    // costs O(log n + limit); its cursors are positions in that list.
+    public TransactionPage page(TransactionQuery query, int cursor, int limit) {
+        List<Transaction> rows = rowsFor(query);
+        int start = Math.max(cursor, query.from() == null ? 0 : lowerBound(rows, query.from()));
+        int end = query.to() == null ? rows.size() : lowerBound(rows, query.to());
+        int stop = (int) Math.min(end, (long) start + Math.max(limit, 0));
+        List<Transaction> items = start < stop ? List.copyOf(rows.subList(start, stop)) : List.of();
+        return new TransactionPage(items, stop < end ? stop : -1);
+    }
+
+    // Cursor of the offset-th transaction matching the query, found by binary search.
+    public int cursorAt(TransactionQuery query, int offset) {
+        List<Transaction> rows = rowsFor(query);
+        int start = query.from() == null ? 0 : lowerBound(rows, query.from());
+        int end = query.to() == null ? rows.size() : lowerBound(rows, query.to());
+        return (int) Math.min((long) start + Math.max(offset, 0), end);
+    }
+
+    public void setBudget(String category, BigDecimal amount) {
+        CategoryStats stats = statsFor(category);
+        String key = stats.getBudgetKey() != null ? stats.getBudgetKey() : category;
+        budgets.put(key, amount);
+        stats.setBudget(key, amount);
+        listeners.forEach(listener -> listener.budgetChanged(this, key));
     }
 
     public Map<String, BigDecimal> getBudgets() {
@@ -42,35 +166,85 @@ public class Wallet implements Serializable {
     }
 
     public BigDecimal getBudgetFor(String category) {
-        return budgets.entrySet().stream()
-                .filter(entry -> entry.getKey().equalsIgnoreCase(category))
-                .map(Map.Entry::getValue)
-                .findFirst()
-                .orElse(null);
+        CategoryStats stats = categories.get(normalize(category));
+        return stats == null ? null : stats.getBudget();
     }
 
-    public BigDecimal getBalance() {
-        return totalByType(TransactionType.INCOME)
-                .add(totalByType(TransactionType.TRANSFER_IN))
-                .subtract(totalByType(TransactionType.EXPENSE))
-                .subtract(totalByType(TransactionType.TRANSFER_OUT));
+    public Money getIncomesFor(String category) {
+        CategoryStats stats = categories.get(normalize(category));
+        return stats == null ? Money.ZERO : Money.ofMinor(stats.getIncome());
     }
 
-    public BigDecimal totalByType(TransactionType type) {
-        return transactions.stream()
-                .filter(tx -> tx.getType() == type)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+    public Money getExpensesFor(String category) {
+        CategoryStats stats = categories.get(normalize(category));
+        return stats == null ? Money.ZERO : Money.ofMinor(stats.getExpense());
     }
 
-    public Map<String, BigDecimal> totalsByCategory(TransactionType type) {
-        return transactions.stream()
-                .filter(tx -> tx.getType() == type)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.mapping(Transaction::getAmount,
-                                Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))));
+    public boolean hasCategory(String category) {
+        CategoryStats stats = categories.get(normalize(category));
+        return stats != null && (stats.getTransactionCount() > 0 || stats.getBudget() != null);
+    }
+
+    public Money getBalance() {
+        long balance = Money.add(totals[TransactionType.INCOME.ordinal()], totals[TransactionType.TRANSFER_IN.ordinal()]);
+        balance = Money.add(balance, -totals[TransactionType.EXPENSE.ordinal()]);
+        balance = Money.add(balance, -totals[TransactionType.TRANSFER_OUT.ordinal()]);
+        return Money.ofMinor(balance);
+    }
+
+    public Money totalByType(TransactionType type) {
+        return Money.ofMinor(totals[type.ordinal()]);
+    }
+
+    public Map<String, Money> totalsByCategory(TransactionType type) {
+        Map<String, Money> result = new HashMap<>();
+        for (CategoryStats stats : categories.values()) {
+            stats.collectTotals(type, result);
+        }
+        return result;
+    }
+
+    // Income, expense and budget of one category from a single index lookup, or null if the
+    // category has neither transactions nor a budget.
+    public CategoryTotals categoryTotals(String category) {
+        CategoryStats stats = categories.get(normalize(category));
+        if (stats == null || (stats.getTransactionCount() == 0 && stats.getBudget() == null)) {
+            return null;
+        }
+        return new CategoryTotals(Money.ofMinor(stats.getIncome()), Money.ofMinor(stats.getExpense()),
+                stats.getBudget());
+    }
+
+    // Transfers count like the all-time category totals: outgoing ones use up the budget.
+    public Money getExpensesFor(String category, YearMonth month) {
+        return Money.ofMinor(monthlySum(month, normalize(category), TransactionType.EXPENSE, TransactionType.TRANSFER_OUT));
+    }
+
+    public Money totalByType(TransactionType type, YearMonth month) {
+        return Money.ofMinor(monthly.total(month, type));
+    }
+
+    public Map<String, Money> totalsByCategory(TransactionType type, YearMonth month) {
+        Map<String, Money> result = new HashMap<>();
+        monthly.collectTotals(month, type, result);
+        return result;
+    }
+
+    // Same as categoryTotals(category) but with income and expense of one month; never null.
+    public CategoryTotals categoryTotals(String category, YearMonth month) {
+        String key = normalize(category);
+        return new CategoryTotals(
+                Money.ofMinor(monthlySum(month, key, TransactionType.INCOME, TransactionType.TRANSFER_IN)),
+                Money.ofMinor(monthlySum(month, key, TransactionType.EXPENSE, TransactionType.TRANSFER_OUT)),
+                getBudgetFor(category));
+    }
+
+    private long monthlySum(YearMonth month, String key, TransactionType own, TransactionType transfer) {
+        return Money.add(monthly.sum(month, key, own), monthly.sum(month, key, transfer));
+    }
+
+    public int getRevision() {
+        return revision;
     }
 
     public int renameCategory(String original, String target) {
@@ -80,27 +254,181 @@ public class Wallet implements Serializable {
         if (original.equalsIgnoreCase(target)) {
             return 0;
         }
+        CategoryStats source = categories.remove(normalize(original));
+        if (source == null) {
+            return 0;
+        }
+        revision++;
         int changes = 0;
-        ListIterator<Transaction> iterator = transactions.listIterator();
-        while (iterator.hasNext()) {
-            Transaction tx = iterator.next();
-            if (tx.getCategory().equalsIgnoreCase(original)) {
-                iterator.set(tx.withCategory(target));
-                changes++;
+        if (source.getTransactionCount() > 0) {
+            ListIterator<Transaction> iterator = transactions.listIterator();
+            while (iterator.hasNext()) {
+                Transaction tx = iterator.next();
+                if (tx.getCategory().equalsIgnoreCase(original)) {
+                    iterator.set(tx.withCategory(target));
+                    changes++;
+                }
+            }
+            timeline = sortedByTimestamp(transactions);
+        }
+        source.renameTo(target);
+        monthly.rename(normalize(original), normalize(target), target);
+        CategoryStats destination = statsFor(target);
+        destination.absorb(source);
+        if (source.getTransactionCount() > 0) {
+            String key = normalize(target);
+            List<Transaction> rows = new ArrayList<>(destination.getTransactionCount());
+            for (Transaction tx : timeline) {
+                if (normalize(tx.getCategory()).equals(key)) {
+                    rows.add(tx);
+                }
             }
+            destination.setTimeline(rows);
         }
-        String originalKey = budgets.keySet().stream()
-                .filter(key -> key.equalsIgnoreCase(original))
-                .findFirst()
-                .orElse(null);
-        if (originalKey != null) {
-            BigDecimal amount = budgets.remove(originalKey);
-            String targetKey = budgets.keySet().stream()
-                    .filter(key -> key.equalsIgnoreCase(target))
-                    .findFirst()
-                    .orElse(target);
-            budgets.put(targetKey, amount.add(budgets.getOrDefault(targetKey, BigDecimal.ZERO)));
+        if (source.getBudgetKey() != null) {
+            BigDecimal amount = budgets.remove(source.getBudgetKey());
+            String targetKey = destination.getBudgetKey() != null ? destination.getBudgetKey() : target;
+            BigDecimal merged = amount.add(budgets.getOrDefault(targetKey, BigDecimal.ZERO));
+            budgets.put(targetKey, merged);
+            destination.setBudget(targetKey, merged);
         }
+        listeners.forEach(listener -> listener.categoryRenamed(this, original, target));
         return changes;
     }
+
+    private void index(Transaction transaction) {
+        int type = transaction.getType().ordinal();
+        totals[type] = Money.add(totals[type], transaction.getAmountMinor());
+        statsFor(transaction.getCategory()).record(transaction);
+        monthly.record(transaction, normalize(transaction.getCategory()));
+    }
+
+    private void mergeIntoTimeline(List<Transaction> batch) {
+        List<Transaction> sorted = sortedByTimestamp(batch);
+        mergeSorted(timeline, sorted);
+        Map<String, List<Transaction>> byCategory = new HashMap<>();
+        for (Transaction transaction : sorted) {
+            byCategory.computeIfAbsent(normalize(transaction.getCategory()), key -> new ArrayList<>()).add(transaction);
+        }
+        byCategory.forEach((key, rows) -> mergeSorted(statsFor(key).getTimeline(), rows));
+    }
+
+    private List<Transaction> rowsFor(TransactionQuery query) {
+        if (query.category() == null) {
+            return timeline;
+        }
+        CategoryStats stats = categories.get(normalize(query.category()));
+        return stats == null ? List.of() : stats.getTimeline();
+    }
+
+    private static void insertSorted(List<Transaction> rows, Transaction transaction) {
+        int size = rows.size();
+        if (size == 0 || BY_TIMESTAMP.compare(rows.get(size - 1), transaction) <= 0) {
+            rows.add(transaction);
+        } else {
+            rows.add(upperBound(rows, transaction.getTimestamp()), transaction);
+        }
+    }
+
+    // Merges already sorted rows into target; equal timestamps keep existing rows first.
+    private static void mergeSorted(List<Transaction> target, List<Transaction> sorted) {
+        if (sorted.isEmpty()) {
+            return;
+        }
+        int size = target.size();
+        if (size == 0 || BY_TIMESTAMP.compare(target.get(size - 1), sorted.get(0)) <= 0) {
+            target.addAll(sorted);
+            return;
+        }
+        int from = upperBound(target, sorted.get(0).getTimestamp());
+        List<Transaction> tail = new ArrayList<>(target.subList(from, size));
+        target.subList(from, size).clear();
+        int i = 0;
+        int j = 0;
+        while (i < tail.size() && j < sorted.size()) {
+            if (BY_TIMESTAMP.compare(tail.get(i), sorted.get(j)) <= 0) {
+                target.add(tail.get(i++));
+            } else {
+                target.add(sorted.get(j++));
+            }
+        }
+        target.addAll(tail.subList(i, tail.size()));
+        target.addAll(sorted.subList(j, sorted.size()));
+    }
+
+    // First position whose timestamp is not before the given one.
+    private static int lowerBound(List<Transaction> rows, LocalDateTime timestamp) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTimestamps(rows.get(mid).getTimestamp(), timestamp) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position whose timestamp is after the given one.
+    private static int upperBound(List<Transaction> rows, LocalDateTime timestamp) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTimestamps(rows.get(mid).getTimestamp(), timestamp) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<Transaction> sortedByTimestamp(List<Transaction> source) {
+        List<Transaction> sorted = new ArrayList<>(source);
+        sorted.sort(BY_TIMESTAMP);
+        return sorted;
+    }
+
+    private static int compareTimestamps(LocalDateTime left, LocalDateTime right) {
+        if (left == null) {
+            return right == null ? 0 : -1;
+        }
+        if (right == null) {
+            return 1;
+        }
+        return left.compareTo(right);
+    }
+
+    private CategoryStats statsFor(String category) {
+        return categories.computeIfAbsent(normalize(category), key -> new CategoryStats());
+    }
+
+    private static String normalize(String category) {
+        return category == null ? "" : category.toLowerCase(Locale.ROOT);
+    }
+
+    private void rebuildIndexes() {
+        totals = new long[TransactionType.values().length];
+        categories = new HashMap<>();
+        monthly = new MonthlyCube();
+        for (Transaction transaction : transactions) {
+            index(transaction);
+        }
+        timeline = sortedByTimestamp(transactions);
+        for (Transaction transaction : timeline) {
+            statsFor(transaction.getCategory()).getTimeline().add(transaction);
+        }
+        for (Map.Entry<String, BigDecimal> entry : budgets.entrySet()) {
+            statsFor(entry.getKey()).setBudget(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void readObject(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        inputStream.defaultReadObject();
+        listeners = new CopyOnWriteArrayList<>();
+        rebuildIndexes();
+    }
 }
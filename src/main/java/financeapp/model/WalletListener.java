@@ -0,0 +1,17 @@
+package financeapp.model;
+
+import java.util.List;
+
+// Called synchronously after a wallet changes, on the mutating thread and under whatever lock it holds.
+public interface WalletListener {
+    void transactionsAdded(Wallet wallet, List<Transaction> added);
+
+    default void transactionsRemoved(Wallet wallet, List<Transaction> removed) {
+    }
+
+    default void budgetChanged(Wallet wallet, String category) {
+    }
+
+    default void categoryRenamed(Wallet wallet, String original, String target) {
+    }
+}
@@ -0,0 +1,279 @@
+package financeapp.persistence;
+
+import financeapp.model.Wallet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps recently used wallets in memory so repeated loads, e.g. transfers to the same recipient,
+// return the same instance instead of reading the file again. Every caller of load gets that
+// shared instance, which is what keeps a logged-in session and a transfer into it coherent.
+// The size limit is a weight: one unit per wallet plus one per transaction. Least recently used
+// wallets are evicted first; pinned wallets (active sessions) are never evicted.
+// Reads and writes of the delegate happen outside the cache lock, so a cold login or a write-back
+// of one user never stalls the others. A wallet that is being written stays in the writing map
+// until the write finishes; a miss in the meantime takes it back instead of reading a stale file.
+// Write-back writes hold the login's WalletLocks lock, like the commands that change the wallet. An
+// eviction only tries the lock, since its caller may hold other logins' locks: a wallet that is
+// busy stays cached and dirty until a later eviction or flush.
+public class CachingWalletStore implements WalletStore {
+    public enum Mode {
+        WRITE_THROUGH,
+        WRITE_BACK
+    }
+
+    private final WalletStore delegate;
+    private final long maxWeight;
+    private final Mode mode;
+    private final WalletLocks locks;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entry> writing = new HashMap<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachingWalletStore(WalletStore delegate, long maxWeight, Mode mode, WalletLocks locks) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache weight limit must be positive");
+        }
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+        this.mode = mode;
+        this.locks = locks;
+    }
+
+    @Override
+    public Wallet load(String login) {
+        synchronized (this) {
+            Entry entry = cached(login);
+            if (entry != null) {
+                hits++;
+                return entry.wallet;
+            }
+            misses++;
+        }
+        Wallet loaded = delegate.load(login);
+        Wallet shared;
+        List<Entry> victims;
+        synchronized (this) {
+            // Another caller may have loaded or saved this login meanwhile; theirs is the shared instance.
+            Entry entry = cached(login);
+            shared = entry != null ? entry.wallet : put(new Entry(login, loaded)).wallet;
+            victims = evict();
+        }
+        write(victims, true);
+        return shared;
+    }
+
+    @Override
+    public void save(String login, Wallet wallet) {
+        List<Entry> victims;
+        synchronized (this) {
+            Entry entry = entries.get(login);
+            if (entry == null || entry.wallet != wallet) {
+                Entry replacement = new Entry(login, wallet);
+                if (entry != null) {
+                    replacement.pins = entry.pins;
+                }
+                entry = put(replacement);
+            } else {
+                reweigh(entry);
+            }
+            if (mode == Mode.WRITE_BACK) {
+                entry.dirty = true;
+            }
+            victims = evict();
+        }
+        write(victims, true);
+        if (mode == Mode.WRITE_THROUGH) {
+            delegate.save(login, wallet);
+        }
+    }
+
+    @Override
+    public void pin(String login) {
+        synchronized (this) {
+            Entry entry = cached(login);
+            if (entry != null) {
+                entry.pins++;
+                return;
+            }
+            misses++;
+        }
+        Wallet loaded = delegate.load(login);
+        synchronized (this) {
+            Entry entry = cached(login);
+            if (entry == null) {
+                entry = put(new Entry(login, loaded));
+            }
+            entry.pins++;
+        }
+    }
+
+    @Override
+    public void unpin(String login) {
+        List<Entry> victims = List.of();
+        synchronized (this) {
+            Entry entry = entries.get(login);
+            if (entry != null && entry.pins > 0) {
+                entry.pins--;
+                reweigh(entry);
+                victims = evict();
+            }
+        }
+        write(victims, true);
+    }
+
+    @Override
+    public void flush() {
+        List<Entry> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.dirty) {
+                    dirty.add(startWrite(entry));
+                }
+            }
+        }
+        write(dirty, false);
+        delegate.flush();
+    }
+
+    @Override
+    public void sync(String login) {
+        List<Entry> dirty = List.of();
+        synchronized (this) {
+            Entry entry = entries.get(login);
+            if (entry != null && entry.dirty) {
+                dirty = List.of(startWrite(entry));
+            }
+        }
+        write(dirty, false);
+        delegate.sync(login);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), weight);
+    }
+
+    // The cached entry for login, taking back one whose eviction write is still running.
+    private Entry cached(String login) {
+        Entry entry = entries.get(login);
+        if (entry == null) {
+            entry = writing.get(login);
+            if (entry != null) {
+                put(entry).dirty = true;
+            }
+        }
+        return entry;
+    }
+
+    private Entry put(Entry entry) {
+        Entry previous = entries.put(entry.login, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        entry.weight = weigh(entry.wallet);
+        weight += entry.weight;
+        return entry;
+    }
+
+    private void reweigh(Entry entry) {
+        long updated = weigh(entry.wallet);
+        weight += updated - entry.weight;
+        entry.weight = updated;
+    }
+
+    // Returns the dirty victims; the caller writes them once it has left the lock.
+    private List<Entry> evict() {
+        List<Entry> victims = List.of();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.pins > 0) {
+                continue;
+            }
+            iterator.remove();
+            weight -= entry.weight;
+            evictions++;
+            if (entry.dirty) {
+                if (victims.isEmpty()) {
+                    victims = new ArrayList<>();
+                }
+                victims.add(startWrite(entry));
+            }
+        }
+        return victims;
+    }
+
+    private Entry startWrite(Entry entry) {
+        entry.dirty = false;
+        entry.writes++;
+        writing.put(entry.login, entry);
+        return entry;
+    }
+
+    // A failed or skipped write marks the wallet dirty again and keeps it cached, so nothing is lost.
+    private void write(List<Entry> pending, boolean evicted) {
+        RuntimeException failure = null;
+        for (Entry entry : pending) {
+            boolean written = false;
+            Runnable save = () -> delegate.save(entry.login, entry.wallet);
+            try {
+                if (evicted) {
+                    written = locks.tryRun(entry.login, save);
+                } else {
+                    locks.run(entry.login, save);
+                    written = true;
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+            finishWrite(entry, written);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized void finishWrite(Entry entry, boolean written) {
+        if (--entry.writes == 0) {
+            writing.remove(entry.login, entry);
+        }
+        if (!written) {
+            entry.dirty = true;
+            if (!entries.containsKey(entry.login)) {
+                put(entry);
+            }
+        }
+    }
+
+    private static long weigh(Wallet wallet) {
+        return 1L + wallet.getTransactions().size();
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, long weight) {
+    }
+
+    private static final class Entry {
+        private final String login;
+        private final Wallet wallet;
+        private long weight;
+        private int pins;
+        private boolean dirty;
+        private int writes;
+
+        private Entry(String login, Wallet wallet) {
+            this.login = login;
+            this.wallet = wallet;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package financeapp.persistence;
+
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Layout (big-endian):
+//   magic, version,
+//   type names: count, then UTF-8 strings,
+//   string dictionary: count, then UTF-8 strings (categories, notes, counterparties, budget keys),
+//   budgets: count, then (key id, unscaled amount, scale),
+//   transactions: count, then one column per field in this order:
+//     unscaled amount (long), scale (byte), type id (byte), epoch second (long), nano (int),
+//     category id (int), counterparty id (int), note id (int), transfer id (long, since version 2).
+// Version 1 files are still read; their rows have no transfer id.
+final class ColumnarWalletFormat {
+    static final int MAGIC = 0x4657414C;
+    static final short VERSION = 2;
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final byte MINOR_UNIT_SCALE = 2;
+
+    private ColumnarWalletFormat() {
+    }
+
+    static void write(Wallet wallet, DataOutputStream output) throws IOException {
+        List<Transaction> transactions = wallet.getTransactions();
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int count = transactions.size();
+        int[] categories = new int[count];
+        int[] counterparties = new int[count];
+        int[] notes = new int[count];
+        for (int i = 0; i < count; i++) {
+            Transaction tx = transactions.get(i);
+            categories[i] = intern(tx.getCategory(), ids, dictionary);
+            counterparties[i] = intern(tx.getCounterparty(), ids, dictionary);
+            notes[i] = intern(tx.getNote(), ids, dictionary);
+        }
+        Map<String, BigDecimal> budgets = wallet.getBudgets();
+        for (String key : budgets.keySet()) {
+            intern(key, ids, dictionary);
+        }
+
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        TransactionType[] types = TransactionType.values();
+        output.writeInt(types.length);
+        for (TransactionType type : types) {
+            writeString(output, type.name());
+        }
+        output.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            writeString(output, value);
+        }
+        output.writeInt(budgets.size());
+        for (Map.Entry<String, BigDecimal> entry : budgets.entrySet()) {
+            output.writeInt(ids.get(entry.getKey()));
+            writeAmount(output, entry.getValue());
+        }
+
+        output.writeInt(count);
+        for (Transaction tx : transactions) {
+            output.writeLong(tx.getAmountMinor());
+        }
+        for (int i = 0; i < count; i++) {
+            output.writeByte(MINOR_UNIT_SCALE);
+        }
+        for (Transaction tx : transactions) {
+            output.writeByte(tx.getType().ordinal());
+        }
+        for (Transaction tx : transactions) {
+            LocalDateTime timestamp = tx.getTimestamp();
+            output.writeLong(timestamp == null ? NO_TIMESTAMP : timestamp.toEpochSecond(ZoneOffset.UTC));
+        }
+        for (Transaction tx : transactions) {
+            LocalDateTime timestamp = tx.getTimestamp();
+            output.writeInt(timestamp == null ? 0 : timestamp.getNano());
+        }
+        writeColumn(output, categories);
+        writeColumn(output, counterparties);
+        writeColumn(output, notes);
+        for (Transaction tx : transactions) {
+            output.writeLong(tx.getTransferId());
+        }
+    }
+
+    static Wallet read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a columnar wallet file");
+        }
+        short version = buffer.getShort();
+        if (version != 1 && version != VERSION) {
+            throw new IllegalStateException("Unsupported wallet file version " + version);
+        }
+        TransactionType[] types = new TransactionType[buffer.getInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = TransactionType.valueOf(readString(buffer));
+        }
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(buffer);
+        }
+
+        Wallet wallet = new Wallet();
+        int budgetCount = buffer.getInt();
+        for (int i = 0; i < budgetCount; i++) {
+            String key = dictionary[buffer.getInt()];
+            wallet.setBudget(key, BigDecimal.valueOf(buffer.getLong(), buffer.get()));
+        }
+
+        int count = buffer.getInt();
+        int amounts = buffer.position();
+        int scales = amounts + count * Long.BYTES;
+        int typeIds = scales + count;
+        int seconds = typeIds + count;
+        int nanos = seconds + count * Long.BYTES;
+        int categories = nanos + count * Integer.BYTES;
+        int counterparties = categories + count * Integer.BYTES;
+        int notes = counterparties + count * Integer.BYTES;
+        int transferIds = notes + count * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            long second = buffer.getLong(seconds + i * Long.BYTES);
+            LocalDateTime timestamp = second == NO_TIMESTAMP ? null
+                    : LocalDateTime.ofEpochSecond(second, buffer.getInt(nanos + i * Integer.BYTES), ZoneOffset.UTC);
+            long unscaled = buffer.getLong(amounts + i * Long.BYTES);
+            byte scale = buffer.get(scales + i);
+            wallet.addTransaction(new Transaction(
+                    dictionary[buffer.getInt(categories + i * Integer.BYTES)],
+                    scale == MINOR_UNIT_SCALE ? unscaled : Money.toMinor(BigDecimal.valueOf(unscaled, scale)),
+                    types[buffer.get(typeIds + i)],
+                    dictionary[buffer.getInt(notes + i * Integer.BYTES)],
+                    timestamp,
+                    dictionary[buffer.getInt(counterparties + i * Integer.BYTES)],
+                    version == 1 ? 0 : buffer.getLong(transferIds + i * Long.BYTES)));
+        }
+        return wallet;
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<String> dictionary) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            ids.put(value, id);
+            dictionary.add(value);
+        }
+        return id;
+    }
+
+    private static void writeAmount(DataOutputStream output, BigDecimal amount) throws IOException {
+        output.writeLong(unscaled(amount));
+        output.writeByte(amount.scale());
+    }
+
+    private static long unscaled(BigDecimal amount) {
+        if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Amount scale out of range: " + amount);
+        }
+        try {
+            return amount.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Amount out of range: " + amount, e);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream output, int[] column) throws IOException {
+        for (int value : column) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+package financeapp.persistence;
+
+import financeapp.model.Wallet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ColumnarWalletStore implements WalletStore {
+    static final String EXTENSION = "-wallet.fwal";
+
+    // Below this size a plain read is cheaper than setting up a mapping, and it keeps small
+    // files from staying locked on platforms that refuse to replace a mapped file.
+    private static final long MAPPING_THRESHOLD = 4L * 1024 * 1024;
+
+    private final WalletFileLayout layout;
+    // Reads wallets still stored as snapshot + journal; they are converted once, when the store opens.
+    private final JournalingWalletStore legacy;
+    private final LockStripes locks = new LockStripes();
+
+    public ColumnarWalletStore(Path storageDir) {
+        this.layout = new WalletFileLayout(storageDir);
+        this.legacy = new JournalingWalletStore(layout, JournalingWalletStore.DEFAULT_COMPACT_THRESHOLD);
+        WalletFileConverter.convertDirectory(layout, legacy);
+    }
+
+    @Override
+    public Wallet load(String login) {
+        ReentrantLock lock = locks.forLogin(login);
+        lock.lock();
+        try {
+            return read(login);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Wallet read(String login) {
+        Path file = layout.file(login, EXTENSION);
+        if (Files.notExists(file)) {
+            // Only a legacy file copied in after the store opened still needs converting here.
+            return Files.exists(layout.file(login, FileWalletStore.EXTENSION))
+                    ? WalletFileConverter.convert(legacy, layout, login)
+                    : new Wallet();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer;
+            if (size >= MAPPING_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+            }
+            return ColumnarWalletFormat.read(buffer);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Unable to read wallet for " + login, e);
+        }
+    }
+
+    @Override
+    public void save(String login, Wallet wallet) {
+        ReentrantLock lock = locks.forLogin(login);
+        lock.lock();
+        try {
+            write(layout, login, wallet);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sync(String login) {
+        FileSync.force(layout.file(login, EXTENSION));
+    }
+
+    static void write(WalletFileLayout layout, String login, Wallet wallet) {
+        try {
+            Path file = layout.fileForWrite(login, EXTENSION);
+            Path temp = layout.fileForWrite(login, EXTENSION + ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp), 1 << 16))) {
+                ColumnarWalletFormat.write(wallet, output);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to persist wallet for " + login, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package financeapp.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+final class FileSync {
+    private FileSync() {
+    }
+
+    // Forces everything written to the file so far, through any descriptor, to the device, then the
+    // directories holding the files, so a file that replaced another by rename stays in place.
+    static void force(Path... files) {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path file : files) {
+            if (Files.notExists(file)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to sync " + file, e);
+            }
+            directories.add(file.toAbsolutePath().getParent());
+        }
+        directories.forEach(FileSync::forceDirectory);
+    }
+
+    static void forceDirectory(Path directory) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some platforms cannot open a directory; there the file system orders renames itself.
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to sync " + directory, e);
+        }
+    }
+}
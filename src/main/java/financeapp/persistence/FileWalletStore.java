@@ -2,48 +2,71 @@ package financeapp.persistence;
 
 import financeapp.model.Wallet;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class FileWalletStore implements WalletStore {
-    private final Path storageDir;
+    static final String EXTENSION = "-wallet.dat";
+
+    private final WalletFileLayout layout;
+    private final LockStripes locks = new LockStripes();
 
     public FileWalletStore(Path storageDir) {
-        this.storageDir = storageDir;
-        try {
-            Files.createDirectories(storageDir);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to access wallet storage directory", e);
-        }
+        this.layout = new WalletFileLayout(storageDir);
     }
 
     @Override
-    public synchronized Wallet load(String login) {
-        Path file = storageDir.resolve(login + "-wallet.dat");
-        if (Files.notExists(file)) {
-            return new Wallet();
-        }
-        try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(file))) {
-            Object object = inputStream.readObject();
-            if (object instanceof Wallet wallet) {
-                return wallet;
+    public Wallet load(String login) {
+        ReentrantLock lock = locks.forLogin(login);
+        lock.lock();
+        try {
+            Path file = layout.file(login, EXTENSION);
+            if (Files.notExists(file)) {
+                return new Wallet();
             }
-        } catch (IOException | ClassNotFoundException ignored) {
-            // Fall through to return empty wallet
+            try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(file))) {
+                Object object = inputStream.readObject();
+                if (object instanceof Wallet wallet) {
+                    return wallet;
+                }
+            } catch (IOException | ClassNotFoundException ignored) {
+                // Fall through to return empty wallet
+            }
+            return new Wallet();
+        } finally {
+            lock.unlock();
         }
-        return new Wallet();
     }
 
+    // Written to a temp file and renamed over the old one, so a crash mid-write leaves the
+    // previous wallet intact instead of a truncated file.
     @Override
-    public synchronized void save(String login, Wallet wallet) {
-        Path file = storageDir.resolve(login + "-wallet.dat");
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(Files.newOutputStream(file))) {
-            outputStream.writeObject(wallet);
+    public void save(String login, Wallet wallet) {
+        ReentrantLock lock = locks.forLogin(login);
+        lock.lock();
+        try {
+            Path file = layout.fileForWrite(login, EXTENSION);
+            Path temp = layout.fileForWrite(login, EXTENSION + ".tmp");
+            try (ObjectOutputStream outputStream = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                outputStream.writeObject(wallet);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new IllegalStateException("Unable to persist wallet for " + login, e);
+        } finally {
+            lock.unlock();
         }
     }
+
+    @Override
+    public void sync(String login) {
+        FileSync.force(layout.file(login, EXTENSION));
+    }
 }
@@ -0,0 +1,351 @@
+package financeapp.persistence;
+
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+public class JournalingWalletStore implements WalletStore {
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+    private static final String JOURNAL_EXTENSION = "-wallet.journal";
+    // Version 1 wrote strings with writeUTF, which cannot hold more than 64 KB; version 2 writes an
+    // int length and the UTF-8 bytes. Version 1 journals are still replayed but never appended to.
+    private static final int JOURNAL_MAGIC_V1 = 0x464A4E31;
+    private static final int JOURNAL_MAGIC = 0x464A4E32;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final byte TRANSACTION_RECORD = 1;
+    private static final byte BUDGET_RECORD = 2;
+    // A transaction record followed by the transfer id.
+    private static final byte TRANSFER_RECORD = 3;
+
+    private final WalletFileLayout layout;
+    private final int compactThreshold;
+    private final Map<String, JournalState> states = new ConcurrentHashMap<>();
+    private final LockStripes locks = new LockStripes();
+
+    public JournalingWalletStore(Path storageDir) {
+        this(storageDir, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public JournalingWalletStore(Path storageDir, int compactThreshold) {
+        this(new WalletFileLayout(storageDir), compactThreshold);
+    }
+
+    JournalingWalletStore(WalletFileLayout layout, int compactThreshold) {
+        if (compactThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.compactThreshold = compactThreshold;
+        this.layout = layout;
+    }
+
+    @Override
+    public Wallet load(String login) {
+        ReentrantLock lock = locks.forLogin(login);
+        lock.lock();
+        try {
+            return read(login);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void save(String login, Wallet wallet) {
+        ReentrantLock lock = locks.forLogin(login);
+        lock.lock();
+        try {
+            write(login, wallet);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Wallet read(String login) {
+        Wallet wallet = new Wallet();
+        long snapshotCrc = 0;
+        Path snapshot = snapshotFile(login);
+        if (Files.exists(snapshot)) {
+            try {
+                byte[] bytes = Files.readAllBytes(snapshot);
+                snapshotCrc = checksum(bytes);
+                try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    if (inputStream.readObject() instanceof Wallet stored) {
+                        wallet = stored;
+                    }
+                }
+            } catch (IOException | ClassNotFoundException ignored) {
+                // Fall through with an empty wallet, as FileWalletStore does
+            }
+        }
+        int records = replayJournal(login, wallet, snapshotCrc);
+        if (records < 0) {
+            states.remove(login);
+        } else {
+            states.put(login, new JournalState(wallet, records));
+        }
+        return wallet;
+    }
+
+    private void write(String login, Wallet wallet) {
+        JournalState state = states.get(login);
+        if (state == null || !state.tracks(wallet)) {
+            compact(login, wallet);
+            return;
+        }
+        List<Transaction> transactions = wallet.getTransactions();
+        Map<String, BigDecimal> changedBudgets = state.changedBudgets(wallet.getBudgets());
+        int pending = transactions.size() - state.persistedTransactions + changedBudgets.size();
+        if (pending == 0) {
+            return;
+        }
+        if (state.records + pending > compactThreshold) {
+            compact(login, wallet);
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            for (int i = state.persistedTransactions; i < transactions.size(); i++) {
+                writeTransaction(output, i, transactions.get(i));
+            }
+            for (Map.Entry<String, BigDecimal> entry : changedBudgets.entrySet()) {
+                output.writeByte(BUDGET_RECORD);
+                writeString(output, entry.getKey());
+                writeString(output, entry.getValue().toPlainString());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode journal for " + login, e);
+        }
+        try (FileChannel channel = FileChannel.open(journalFile(login),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to persist wallet for " + login, e);
+        }
+        state.markPersisted(wallet, pending);
+    }
+
+    private void compact(String login, Wallet wallet) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (ObjectOutputStream outputStream = new ObjectOutputStream(buffer)) {
+                outputStream.writeObject(wallet);
+            }
+            bytes = buffer.toByteArray();
+            Path temp = layout.fileForWrite(login, FileWalletStore.EXTENSION + ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, snapshotFile(login), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long crc = checksum(bytes);
+            writeJournalHeader(login, crc);
+            states.put(login, new JournalState(wallet, 0));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to persist wallet for " + login, e);
+        }
+    }
+
+    // The header pins the journal to the snapshot it extends, so a journal left behind by an
+    // interrupted compaction is ignored instead of being replayed twice. Returns -1 when there is
+    // no journal to append to and the next save has to write a fresh snapshot.
+    private int replayJournal(String login, Wallet wallet, long snapshotCrc) {
+        Path journal = journalFile(login);
+        if (Files.notExists(journal)) {
+            return -1;
+        }
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(journal);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read wallet journal for " + login, e);
+        }
+        if (bytes.length < HEADER_SIZE) {
+            return -1;
+        }
+        int records = 0;
+        int validLength = 0;
+        boolean legacy = false;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int magic = input.readInt();
+            legacy = magic == JOURNAL_MAGIC_V1;
+            if (magic != JOURNAL_MAGIC && !legacy || input.readLong() != snapshotCrc) {
+                return -1;
+            }
+            validLength = HEADER_SIZE;
+            while (validLength < bytes.length) {
+                byte kind = input.readByte();
+                if (kind == TRANSACTION_RECORD || kind == TRANSFER_RECORD) {
+                    int index = input.readInt();
+                    Transaction transaction = readTransaction(input, kind == TRANSFER_RECORD, legacy);
+                    if (index == wallet.getTransactions().size()) {
+                        wallet.addTransaction(transaction);
+                    }
+                } else if (kind == BUDGET_RECORD) {
+                    String category = readString(input, legacy);
+                    wallet.setBudget(category, new BigDecimal(readString(input, legacy)));
+                } else {
+                    break;
+                }
+                records++;
+                validLength = bytes.length - input.available();
+            }
+        } catch (EOFException | IllegalArgumentException ignored) {
+            // A torn or corrupt tail record is dropped below
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read wallet journal for " + login, e);
+        }
+        if (legacy) {
+            return -1;
+        }
+        if (validLength >= HEADER_SIZE && validLength < bytes.length) {
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to repair wallet journal for " + login, e);
+            }
+        }
+        return records;
+    }
+
+    private void writeJournalHeader(String login, long snapshotCrc) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(JOURNAL_MAGIC).putLong(snapshotCrc).flip();
+        try (FileChannel channel = FileChannel.open(journalFile(login), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+    }
+
+    private static void writeTransaction(DataOutputStream output, int index, Transaction transaction) throws IOException {
+        output.writeByte(transaction.getTransferId() == 0 ? TRANSACTION_RECORD : TRANSFER_RECORD);
+        output.writeInt(index);
+        writeString(output, transaction.getCategory());
+        writeString(output, transaction.getAmount().toPlainString());
+        writeString(output, transaction.getType().name());
+        writeString(output, transaction.getNote());
+        writeString(output, String.valueOf(transaction.getTimestamp()));
+        writeString(output, transaction.getCounterparty());
+        if (transaction.getTransferId() != 0) {
+            output.writeLong(transaction.getTransferId());
+        }
+    }
+
+    private static Transaction readTransaction(DataInputStream input, boolean transfer, boolean legacy)
+            throws IOException {
+        String category = readString(input, legacy);
+        BigDecimal amount = new BigDecimal(readString(input, legacy));
+        TransactionType type = TransactionType.valueOf(readString(input, legacy));
+        String note = readString(input, legacy);
+        String timestamp = readString(input, legacy);
+        String counterparty = readString(input, legacy);
+        long transferId = transfer ? input.readLong() : 0;
+        return new Transaction(category, Money.toMinor(amount), type, note,
+                "null".equals(timestamp) ? null : LocalDateTime.parse(timestamp), counterparty, transferId);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input, boolean legacy) throws IOException {
+        if (legacy) {
+            return input.readUTF();
+        }
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new EOFException("Truncated string");
+        }
+        return new String(input.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    @Override
+    public void sync(String login) {
+        FileSync.force(snapshotFile(login), journalFile(login));
+    }
+
+    private Path snapshotFile(String login) {
+        return layout.file(login, FileWalletStore.EXTENSION);
+    }
+
+    private Path journalFile(String login) {
+        return layout.file(login, JOURNAL_EXTENSION);
+    }
+
+    private static final class JournalState {
+        private final WeakReference<Wallet> wallet;
+        private final int revision;
+        private final Map<String, BigDecimal> persistedBudgets;
+        private int persistedTransactions;
+        private int records;
+
+        JournalState(Wallet wallet, int records) {
+            this.wallet = new WeakReference<>(wallet);
+            this.revision = wallet.getRevision();
+            this.persistedBudgets = new HashMap<>(wallet.getBudgets());
+            this.persistedTransactions = wallet.getTransactions().size();
+            this.records = records;
+        }
+
+        boolean tracks(Wallet candidate) {
+            return wallet.get() == candidate
+                    && candidate.getRevision() == revision
+                    && candidate.getTransactions().size() >= persistedTransactions
+                    && candidate.getBudgets().keySet().containsAll(persistedBudgets.keySet());
+        }
+
+        Map<String, BigDecimal> changedBudgets(Map<String, BigDecimal> budgets) {
+            Map<String, BigDecimal> changed = new HashMap<>();
+            for (Map.Entry<String, BigDecimal> entry : budgets.entrySet()) {
+                if (!Objects.equals(persistedBudgets.get(entry.getKey()), entry.getValue())) {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return changed;
+        }
+
+        void markPersisted(Wallet current, int appended) {
+            persistedTransactions = current.getTransactions().size();
+            persistedBudgets.clear();
+            persistedBudgets.putAll(current.getBudgets());
+            records += appended;
+        }
+    }
+}
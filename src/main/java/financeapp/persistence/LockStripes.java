@@ -0,0 +1,22 @@
+package financeapp.persistence;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per-login locking for the file stores without a lock object per user: different logins
+// usually land on different stripes and proceed in parallel.
+final class LockStripes {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    LockStripes() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    ReentrantLock forLogin(String login) {
+        int hash = login.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,298 @@
+package financeapp.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Redo log that makes a transfer between two wallets one durable unit. A transfer is logged before
+// either wallet changes and counts as done once its record is on disk; the wallets themselves are
+// saved the usual way, write-behind included. After a crash, recover replays every logged transfer
+// that a wallet is missing, matched by transfer id.
+//
+// Appends go to one open channel. A thread that finds its record not yet forced forces the file
+// once for every record appended so far, so concurrent transfers share one fsync.
+//
+// The log is a sequence of segment files <n>.log; a full segment is closed and, once every wallet
+// it mentions has been saved and synced, released. Each run starts a new segment.
+// Records (big-endian): body length (int), CRC32 of the body (int), body. Body: kind (byte),
+// transfer id (long); a transfer record adds sender, recipient, category (int length + UTF-8),
+// amount in minor units (long) and timestamp (int length + UTF-8).
+public class TransferLog implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_RECORDS = 1024;
+
+    private static final String EXTENSION = ".log";
+    private static final byte TRANSFER = 1;
+    private static final byte ABORT = 2;
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final List<Entry> recovered;
+    private final long firstSegment;
+    private final Object syncLock = new Object();
+    // Guarded by this.
+    private FileChannel channel;
+    private long segment;
+    private int records;
+    private Set<String> logins = new HashSet<>();
+    private long appended;
+    // Guarded by syncLock.
+    private long forced;
+
+    public TransferLog(Path directory) {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    public TransferLog(Path directory, int segmentRecords) {
+        if (segmentRecords <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        Map<Long, Entry> committed = new LinkedHashMap<>();
+        long last = 0;
+        try {
+            Files.createDirectories(directory);
+            for (long number : segments()) {
+                read(segmentFile(number), committed);
+                last = number;
+            }
+            this.segment = last + 1;
+            this.firstSegment = segment;
+            this.channel = open(segment);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open transfer log " + directory, e);
+        }
+        this.recovered = List.copyOf(committed.values());
+    }
+
+    // Transfers logged by earlier runs and not aborted, oldest first.
+    public List<Entry> recovered() {
+        return recovered;
+    }
+
+    // Segments written by earlier runs; release them once every recovered transfer is saved.
+    public Segment recoveredSegments() {
+        Set<String> touched = new HashSet<>();
+        for (Entry entry : recovered) {
+            touched.add(entry.sender());
+            touched.add(entry.recipient());
+        }
+        return new Segment(firstSegment - 1, touched, true);
+    }
+
+    // Returns once the record is on disk.
+    public Entry append(long id, String sender, String recipient, String category, long amountMinor,
+                        LocalDateTime timestamp) {
+        Entry entry = new Entry(id, sender, recipient, category, amountMinor, timestamp);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(body)) {
+            output.writeByte(TRANSFER);
+            output.writeLong(id);
+            writeString(output, sender);
+            writeString(output, recipient);
+            writeString(output, category);
+            output.writeLong(amountMinor);
+            writeString(output, String.valueOf(timestamp));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode transfer " + id, e);
+        }
+        commit(write(body.toByteArray(), sender, recipient));
+        return entry;
+    }
+
+    // Marks a logged transfer as not done, for a transfer rolled back before it completed.
+    public void abort(Entry entry) {
+        byte[] body = ByteBuffer.allocate(1 + Long.BYTES).put(ABORT).putLong(entry.id()).array();
+        commit(write(body, entry.sender(), entry.recipient()));
+    }
+
+    // Closes the current segment if it is full and returns it; the caller saves and syncs its
+    // logins and then releases it. Null while the segment still has room.
+    public Segment rotateIfFull() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (records < segmentRecords) {
+                    return null;
+                }
+                try {
+                    // Records of the old segment may still be waiting for a group force.
+                    channel.force(true);
+                    forced = appended;
+                    channel.close();
+                    Segment full = new Segment(segment, logins, false);
+                    segment++;
+                    records = 0;
+                    logins = new HashSet<>();
+                    channel = open(segment);
+                    return full;
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to start a new transfer log segment", e);
+                }
+            }
+        }
+    }
+
+    public void release(Segment released) {
+        try {
+            if (released.andOlder()) {
+                for (long number : segments()) {
+                    if (number <= released.number()) {
+                        Files.deleteIfExists(segmentFile(number));
+                    }
+                }
+            } else {
+                Files.deleteIfExists(segmentFile(released.number()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to release transfer log segment " + released.number(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    channel.force(true);
+                    channel.close();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to close transfer log " + directory, e);
+                }
+            }
+        }
+    }
+
+    private synchronized long write(byte[] body, String sender, String recipient) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + body.length);
+        record.putInt(body.length).putInt(checksum(body)).put(body).flip();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write transfer log " + directory, e);
+        }
+        records++;
+        logins.add(sender);
+        logins.add(recipient);
+        return ++appended;
+    }
+
+    private void commit(long sequence) {
+        synchronized (syncLock) {
+            if (forced >= sequence) {
+                return;
+            }
+            long upTo;
+            FileChannel current;
+            synchronized (this) {
+                upTo = appended;
+                current = channel;
+            }
+            try {
+                current.force(true);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to sync transfer log " + directory, e);
+            }
+            forced = upTo;
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentFile(number), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        FileSync.forceDirectory(directory);
+        return opened;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(EXTENSION))
+                    .map(name -> name.substring(0, name.length() - EXTENSION.length()))
+                    .filter(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit))
+                    .forEach(name -> numbers.add(Long.parseLong(name)));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(number + EXTENSION);
+    }
+
+    // Reading stops at a torn or corrupt record; segments are never appended to after a restart.
+    private static void read(Path file, Map<Long, Entry> committed) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (bytes.remaining() >= RECORD_HEADER) {
+            int length = bytes.getInt();
+            int crc = bytes.getInt();
+            if (length <= 0 || length > bytes.remaining()) {
+                return;
+            }
+            byte[] body = new byte[length];
+            bytes.get(body);
+            if (checksum(body) != crc) {
+                return;
+            }
+            try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+                byte kind = input.readByte();
+                long id = input.readLong();
+                if (kind == TRANSFER) {
+                    String sender = readString(input);
+                    String recipient = readString(input);
+                    String category = readString(input);
+                    long amountMinor = input.readLong();
+                    String timestamp = readString(input);
+                    committed.put(id, new Entry(id, sender, recipient, category, amountMinor,
+                            "null".equals(timestamp) ? null : LocalDateTime.parse(timestamp)));
+                } else if (kind == ABORT) {
+                    committed.remove(id);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    public record Entry(long id, String sender, String recipient, String category, long amountMinor,
+                        LocalDateTime timestamp) {
+    }
+
+    // A closed segment and the logins its transfers touched; andOlder also covers every earlier one.
+    public record Segment(long number, Set<String> logins, boolean andOlder) {
+    }
+}
@@ -0,0 +1,43 @@
+package financeapp.persistence;
+
+import financeapp.model.Wallet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public final class WalletFileConverter {
+    private WalletFileConverter() {
+    }
+
+    public static void main(String[] args) {
+        Path dir = Path.of(args.length > 0 ? args[0] : "data/wallets");
+        int converted = convertDirectory(dir);
+        System.out.println("Converted wallets: " + converted);
+    }
+
+    public static int convertDirectory(Path storageDir) {
+        WalletFileLayout layout = new WalletFileLayout(storageDir);
+        return convertDirectory(layout, new JournalingWalletStore(layout, JournalingWalletStore.DEFAULT_COMPACT_THRESHOLD));
+    }
+
+    static int convertDirectory(WalletFileLayout layout, JournalingWalletStore journal) {
+        List<String> logins = layout.logins(FileWalletStore.EXTENSION).stream()
+                .filter(login -> Files.notExists(layout.file(login, ColumnarWalletStore.EXTENSION)))
+                .toList();
+        for (String login : logins) {
+            convert(journal, layout, login);
+        }
+        return logins.size();
+    }
+
+    // Goes through JournalingWalletStore so that journal records written after the last
+    // snapshot are carried over as well; a plain FileWalletStore file has no journal.
+    static Wallet convert(JournalingWalletStore journal, WalletFileLayout layout, String login) {
+        Wallet wallet = journal.load(login);
+        if (Files.exists(layout.file(login, FileWalletStore.EXTENSION))) {
+            ColumnarWalletStore.write(layout, login, wallet);
+        }
+        return wallet;
+    }
+}
@@ -0,0 +1,97 @@
+package financeapp.persistence;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Wallet files live two directory levels below the storage root, in shards picked by the CRC32 of
+// the login: <root>/3f/a0/<login>-wallet.dat. Each directory then holds a handful of files even
+// with hundreds of thousands of users. Files left in the root by the old flat layout are moved
+// into their shards when a store is opened.
+final class WalletFileLayout {
+    private static final String WALLET_MARKER = "-wallet.";
+
+    private final Path root;
+
+    WalletFileLayout(Path root) {
+        this.root = root;
+        try {
+            Files.createDirectories(root);
+            migrateFlatFiles();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to access wallet storage directory", e);
+        }
+    }
+
+    Path file(String login, String suffix) {
+        checkLogin(login);
+        return shardDirectory(login).resolve(login + suffix);
+    }
+
+    // Same as file, but makes sure the shard directory exists so the file can be created.
+    Path fileForWrite(String login, String suffix) throws IOException {
+        checkLogin(login);
+        Path shard = shardDirectory(login);
+        Files.createDirectories(shard);
+        return shard.resolve(login + suffix);
+    }
+
+    List<String> logins(String suffix) {
+        List<String> logins = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            files.filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(suffix))
+                    .forEach(name -> logins.add(name.substring(0, name.length() - suffix.length())));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to list wallet storage directory " + root, e);
+        }
+        return logins;
+    }
+
+    static String shard(String login) {
+        CRC32 crc = new CRC32();
+        crc.update(login.getBytes(StandardCharsets.UTF_8));
+        long value = crc.getValue();
+        return String.format("%02x/%02x", (value >>> 24) & 0xFF, (value >>> 16) & 0xFF);
+    }
+
+    // Accounts created before logins were restricted could still carry a path; never resolve those.
+    private static void checkLogin(String login) {
+        if (login.contains("/") || login.contains("\\") || login.contains("..")) {
+            throw new IllegalArgumentException("Login is not usable as a wallet file name: " + login);
+        }
+    }
+
+    private Path shardDirectory(String login) {
+        return root.resolve(shard(login));
+    }
+
+    private void migrateFlatFiles() throws IOException {
+        List<Path> flat;
+        try (Stream<Path> files = Files.list(root)) {
+            flat = files.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().contains(WALLET_MARKER))
+                    .toList();
+        }
+        for (Path file : flat) {
+            String name = file.getFileName().toString();
+            String login = name.substring(0, name.lastIndexOf(WALLET_MARKER));
+            Path shard = shardDirectory(login);
+            Files.createDirectories(shard);
+            Path target = shard.resolve(name);
+            if (Files.exists(target)) {
+                // A sharded copy was already written after a partial migration; it is newer.
+                Files.delete(file);
+            } else {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+}
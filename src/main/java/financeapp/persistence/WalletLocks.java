@@ -0,0 +1,11 @@
+package financeapp.persistence;
+
+// The per-login locks that every change to a wallet is made under. A store that writes a shared
+// wallet on its own initiative, such as a write-back cache, takes the same lock so the write never
+// sees the wallet half way through a command.
+public interface WalletLocks {
+    void run(String login, Runnable action);
+
+    // Runs the action only if the login's lock is free or already held by this thread.
+    boolean tryRun(String login, Runnable action);
+}
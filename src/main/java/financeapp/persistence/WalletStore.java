@@ -6,5 +6,19 @@ public interface WalletStore {
     Wallet load(String login);
 
     void save(String login, Wallet wallet);
-}
 
+    // Keeps the wallet of an active session resident in stores that cache instances.
+    default void pin(String login) {
+    }
+
+    default void unpin(String login) {
+    }
+
+    // Writes out anything a store has accepted but not yet persisted.
+    default void flush() {
+    }
+
+    // Forces the files of an already saved wallet to stable storage.
+    default void sync(String login) {
+    }
+}
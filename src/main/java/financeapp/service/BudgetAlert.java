@@ -0,0 +1,11 @@
+package financeapp.service;
+
+public record BudgetAlert(Kind kind, String category, String message) {
+
+    public enum Kind {
+        BUDGET_THRESHOLD,
+        BUDGET_EXCEEDED,
+        EXPENSES_EXCEED_INCOME,
+        NON_POSITIVE_BALANCE
+    }
+}
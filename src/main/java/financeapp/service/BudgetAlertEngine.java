@@ -0,0 +1,214 @@
+package financeapp.service;
+
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import financeapp.model.WalletListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Follows attached wallets as they change and queues each crossing once: a category reaching the
+// threshold or going over its budget in the current month, expenses overtaking income, the balance
+// dropping to zero or below. Every change costs a few lookups in the wallet's running totals, so
+// commands, imports and incoming transfers are checked the same way. A condition that clears again
+// (budget raised, new month, income added) is reported on its next crossing.
+public class BudgetAlertEngine {
+    public static final BigDecimal BUDGET_THRESHOLD = new BigDecimal("0.80");
+
+    private static final int CLEAR = 0;
+    private static final int NEAR_LIMIT = 1;
+    private static final int EXCEEDED = 2;
+
+    private final WalletService walletService;
+    private final Clock clock;
+
+    public BudgetAlertEngine(WalletService walletService) {
+        this(walletService, Clock.systemDefaultZone());
+    }
+
+    BudgetAlertEngine(WalletService walletService, Clock clock) {
+        this.walletService = walletService;
+        this.clock = clock;
+    }
+
+    // Call under the wallet's login lock. Conditions that already hold become the baseline and are
+    // not reported.
+    public Subscription attach(Wallet wallet) {
+        Subscription subscription = new Subscription(wallet);
+        wallet.addListener(subscription);
+        return subscription;
+    }
+
+    public final class Subscription implements WalletListener, AutoCloseable {
+        private final Wallet wallet;
+        private final Queue<BudgetAlert> pending = new ConcurrentLinkedQueue<>();
+        // One entry per budgeted category, keyed like the wallet's category index.
+        private final Map<String, BudgetState> budgets = new HashMap<>();
+        private YearMonth month;
+        private boolean overspent;
+        private boolean depleted;
+
+        private Subscription(Wallet wallet) {
+            this.wallet = wallet;
+            this.month = YearMonth.now(clock);
+            for (String category : wallet.getBudgets().keySet()) {
+                BudgetState state = new BudgetState(category);
+                state.level = level(category);
+                budgets.put(key(category), state);
+            }
+            overspent = expensesExceedIncome();
+            depleted = wallet.getBalance().signum() <= 0;
+        }
+
+        @Override
+        public void transactionsAdded(Wallet changed, List<Transaction> added) {
+            rollMonth();
+            // An import can hold many rows per category; each budget is checked once per batch.
+            List<BudgetState> touched = new ArrayList<>();
+            for (Transaction transaction : added) {
+                if (spends(transaction.getType()) && transaction.getTimestamp() != null
+                        && month.equals(YearMonth.from(transaction.getTimestamp()))) {
+                    BudgetState state = budgets.get(key(transaction.getCategory()));
+                    if (state != null && !touched.contains(state)) {
+                        touched.add(state);
+                    }
+                }
+            }
+            touched.forEach(this::check);
+            boolean nowOverspent = expensesExceedIncome();
+            if (nowOverspent && !overspent) {
+                pending.add(new BudgetAlert(BudgetAlert.Kind.EXPENSES_EXCEED_INCOME, null,
+                        "Предупреждение: расходы превышают доходы."));
+            }
+            overspent = nowOverspent;
+            boolean nowDepleted = wallet.getBalance().signum() <= 0;
+            if (nowDepleted && !depleted) {
+                pending.add(new BudgetAlert(BudgetAlert.Kind.NON_POSITIVE_BALANCE, null,
+                        "Баланс опустился до нуля или стал отрицательным. Пополните кошелек."));
+            }
+            depleted = nowDepleted;
+        }
+
+        // Rows taken back restore an earlier state, so the levels are re-read without reporting.
+        @Override
+        public void transactionsRemoved(Wallet changed, List<Transaction> removed) {
+            rollMonth();
+            budgets.values().forEach(state -> state.level = level(state.name));
+            overspent = expensesExceedIncome();
+            depleted = wallet.getBalance().signum() <= 0;
+        }
+
+        @Override
+        public void budgetChanged(Wallet changed, String category) {
+            rollMonth();
+            budgets.computeIfAbsent(key(category), key -> new BudgetState(category));
+            checkBudget(category);
+        }
+
+        @Override
+        public void categoryRenamed(Wallet changed, String original, String target) {
+            rollMonth();
+            BudgetState source = budgets.remove(key(original));
+            if (source != null && !budgets.containsKey(key(target))) {
+                budgets.put(key(target), new BudgetState(target));
+            }
+            checkBudget(target);
+        }
+
+        public List<BudgetAlert> drain() {
+            List<BudgetAlert> alerts = new ArrayList<>();
+            BudgetAlert alert;
+            while ((alert = pending.poll()) != null) {
+                alerts.add(alert);
+            }
+            return alerts;
+        }
+
+        @Override
+        public void close() {
+            wallet.removeListener(this);
+        }
+
+        private void checkBudget(String category) {
+            BudgetState state = budgets.get(key(category));
+            if (state != null) {
+                check(state);
+            }
+        }
+
+        private void check(BudgetState state) {
+            int level = level(state.name);
+            if (level > state.level) {
+                pending.add(budgetAlert(state.name, level));
+            }
+            state.level = level;
+        }
+
+        private int level(String category) {
+            BigDecimal budget = wallet.getBudgetFor(category);
+            if (budget == null || budget.signum() <= 0) {
+                return CLEAR;
+            }
+            BigDecimal spent = wallet.getExpensesFor(category, month).toBigDecimal();
+            if (spent.compareTo(budget) > 0) {
+                return EXCEEDED;
+            }
+            return spent.compareTo(budget.multiply(BUDGET_THRESHOLD)) >= 0 ? NEAR_LIMIT : CLEAR;
+        }
+
+        private BudgetAlert budgetAlert(String category, int level) {
+            BigDecimal budget = wallet.getBudgetFor(category);
+            BigDecimal spent = wallet.getExpensesFor(category, month).toBigDecimal();
+            BigDecimal remaining = budget.subtract(spent).setScale(2, RoundingMode.HALF_UP);
+            if (level == EXCEEDED) {
+                return new BudgetAlert(BudgetAlert.Kind.BUDGET_EXCEEDED, category,
+                        "Превышен бюджет по категории: " + category + ". Перерасход: " + remaining.abs());
+            }
+            BigDecimal percent = spent.multiply(BigDecimal.valueOf(100)).divide(budget, 0, RoundingMode.HALF_UP);
+            return new BudgetAlert(BudgetAlert.Kind.BUDGET_THRESHOLD, category,
+                    "Предупреждение: категория '" + category + "' израсходована на " + percent + "%, остаток "
+                            + remaining);
+        }
+
+        // Budgets are monthly, so every category starts below its threshold again in a new month.
+        private void rollMonth() {
+            YearMonth current = YearMonth.now(clock);
+            if (!current.equals(month)) {
+                month = current;
+                budgets.values().forEach(state -> state.level = CLEAR);
+            }
+        }
+
+        private boolean expensesExceedIncome() {
+            return walletService.totalExpense(wallet).compareTo(walletService.totalIncome(wallet)) > 0;
+        }
+    }
+
+    // Outgoing transfers use up a budget like expenses, as in the wallet's monthly sums.
+    private static boolean spends(TransactionType type) {
+        return type == TransactionType.EXPENSE || type == TransactionType.TRANSFER_OUT;
+    }
+
+    private static String key(String category) {
+        return category == null ? "" : category.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class BudgetState {
+        private final String name;
+        private int level;
+
+        private BudgetState(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package financeapp.service;
+
+import java.time.Duration;
+import java.util.List;
+
+public record BulkImportReport(List<Entry> entries, Duration elapsed) {
+
+    public int imported() {
+        return entries.stream().mapToInt(Entry::imported).sum();
+    }
+
+    public long failed() {
+        return entries.stream().filter(entry -> entry.error() != null).count();
+    }
+
+    public record Entry(String login, int files, int imported, String error) {
+    }
+}
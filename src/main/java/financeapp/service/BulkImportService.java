@@ -0,0 +1,113 @@
+package financeapp.service;
+
+import financeapp.model.Wallet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+public class BulkImportService {
+    private final WalletService walletService;
+    private final TransactionImportService importService;
+    private final int threads;
+
+    public BulkImportService(WalletService walletService, TransactionImportService importService) {
+        this(walletService, importService, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BulkImportService(WalletService walletService, TransactionImportService importService, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Число потоков должно быть положительным.");
+        }
+        this.walletService = walletService;
+        this.importService = importService;
+        this.threads = threads;
+    }
+
+    // Every <login>.csv / <login>.tsv file is imported into that login's wallet. Files of one login
+    // run in name order inside a single task and end with one save; different logins run in parallel.
+    public BulkImportReport importDirectory(Path directory, Predicate<String> acceptLogin) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Каталог не найден: " + directory);
+        }
+        long started = System.nanoTime();
+        Map<String, List<Path>> filesByLogin = filesByLogin(directory);
+        List<BulkImportReport.Entry> entries = new ArrayList<>();
+        List<Future<BulkImportReport.Entry>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, filesByLogin.size())));
+        try {
+            for (Map.Entry<String, List<Path>> entry : filesByLogin.entrySet()) {
+                String login = entry.getKey();
+                if (!acceptLogin.test(login)) {
+                    entries.add(new BulkImportReport.Entry(login, entry.getValue().size(), 0,
+                            "Пользователь пропущен."));
+                    continue;
+                }
+                futures.add(executor.submit(() -> importLogin(login, entry.getValue())));
+            }
+            for (Future<BulkImportReport.Entry> future : futures) {
+                entries.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Импорт прерван.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось выполнить импорт: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        entries.sort((left, right) -> left.login().compareTo(right.login()));
+        return new BulkImportReport(entries, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private BulkImportReport.Entry importLogin(String login, List<Path> files) {
+        return walletService.getLocks().call(login, () -> {
+            Wallet wallet = walletService.loadWallet(login);
+            int imported = 0;
+            String error = null;
+            for (Path file : files) {
+                int before = wallet.getTransactions().size();
+                try {
+                    imported += importService.importFromCsv(wallet, file);
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    imported += wallet.getTransactions().size() - before;
+                    error = file.getFileName() + ": " + ex.getMessage();
+                    break;
+                }
+            }
+            walletService.saveWallet(login, wallet);
+            return new BulkImportReport.Entry(login, files.size(), imported, error);
+        });
+    }
+
+    private static Map<String, List<Path>> filesByLogin(Path directory) {
+        Map<String, List<Path>> result = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile)
+                    .sorted()
+                    .forEach(file -> {
+                        String name = file.getFileName().toString();
+                        String lower = name.toLowerCase(Locale.ROOT);
+                        if (lower.endsWith(".csv") || lower.endsWith(".tsv")) {
+                            String login = name.substring(0, name.length() - 4);
+                            result.computeIfAbsent(login, key -> new ArrayList<>()).add(file);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать каталог: " + directory, e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package financeapp.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Reads lines into one reusable char buffer instead of allocating a String per line. After
+// next() returns true the current line is buffer()[start(), end()), without its terminator.
+final class CsvLineReader {
+    private final Reader reader;
+    private char[] buffer;
+    private int limit;
+    private int position;
+    private int lineStart;
+    private int lineEnd;
+    private boolean eof;
+    private boolean skipLineFeed;
+
+    CsvLineReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    boolean next() throws IOException {
+        while (true) {
+            for (int i = position; i < limit; i++) {
+                char c = buffer[i];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        position = i + 1;
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = i + 1;
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+            }
+            if (eof) {
+                if (position < limit) {
+                    lineStart = position;
+                    lineEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    int start() {
+        return lineStart;
+    }
+
+    int end() {
+        return lineEnd;
+    }
+
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = remaining;
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package financeapp.service;
+
+class CsvRowException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final String reason;
+
+    CsvRowException(int line, String reason) {
+        super("Строка " + line + ": " + reason);
+        this.line = line;
+        this.reason = reason;
+    }
+
+    CsvRowException shiftedBy(int lines) {
+        return new CsvRowException(line + lines, reason);
+    }
+}
@@ -0,0 +1,186 @@
+package financeapp.service;
+
+import java.util.Arrays;
+
+// Splits one line held in a shared char buffer into fields without allocating: fields are kept
+// as offsets into the buffer and only turned into Strings when a value is actually needed.
+final class CsvTokenizer {
+    private static final int CACHE_SIZE = 256;
+
+    private char[] buffer;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] quoted = new boolean[8];
+    private int fieldCount;
+    private final String[] cache = new String[CACHE_SIZE];
+
+    int tokenize(char[] source, int from, int to) {
+        buffer = source;
+        fieldCount = 0;
+        int start = from;
+        boolean inQuotes = false;
+        boolean sawQuote = false;
+        for (int i = from; i < to; i++) {
+            char c = source[i];
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                sawQuote = true;
+            } else if (!inQuotes && (c == ';' || c == ',')) {
+                addField(start, i, sawQuote);
+                start = i + 1;
+                sawQuote = false;
+            }
+        }
+        addField(start, to, sawQuote);
+        return fieldCount;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    boolean fieldEqualsIgnoreCase(int field, String expected) {
+        if (quoted[field]) {
+            return unquoted(field).equalsIgnoreCase(expected);
+        }
+        int start = starts[field];
+        int length = expected.length();
+        if (ends[field] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toUpperCase(buffer[start + i]) != Character.toUpperCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String field(int field) {
+        if (quoted[field]) {
+            return unquoted(field);
+        }
+        return new String(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    // Categories repeat on almost every row, so equal values share one String instance.
+    String cachedField(int field) {
+        if (quoted[field]) {
+            return unquoted(field);
+        }
+        int start = starts[field];
+        int end = ends[field];
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        String cached = cache[slot];
+        if (cached != null && matches(cached, start, end)) {
+            return cached;
+        }
+        String value = new String(buffer, start, end - start);
+        cache[slot] = value;
+        return value;
+    }
+
+    // Parses a positive decimal with '.' or ',' as the separator into cents, rounding half up
+    // beyond two fraction digits. Returns -1 if the field is not such a number.
+    long fieldCents(int field) {
+        if (quoted[field]) {
+            char[] value = unquoted(field).toCharArray();
+            return parseCents(value, 0, value.length);
+        }
+        return parseCents(buffer, starts[field], ends[field]);
+    }
+
+    static long parseCents(char[] chars, int from, int to) {
+        long units = 0;
+        int fractionDigits = 0;
+        int digits = 0;
+        boolean separator = false;
+        boolean roundUp = false;
+        int start = from;
+        if (start < to && chars[start] == '+') {
+            start++;
+        }
+        for (int i = start; i < to; i++) {
+            char c = chars[i];
+            if (c == '.' || c == ',') {
+                if (separator) {
+                    return -1;
+                }
+                separator = true;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (!separator || fractionDigits < 2) {
+                    if (units > (Long.MAX_VALUE - 9) / 10) {
+                        return -1;
+                    }
+                    units = units * 10 + (c - '0');
+                    if (separator) {
+                        fractionDigits++;
+                    }
+                } else if (fractionDigits == 2) {
+                    roundUp = c >= '5';
+                    fractionDigits++;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0) {
+            return -1;
+        }
+        for (int i = Math.min(fractionDigits, 2); i < 2; i++) {
+            if (units > Long.MAX_VALUE / 10) {
+                return -1;
+            }
+            units *= 10;
+        }
+        if (roundUp) {
+            units++;
+        }
+        return units;
+    }
+
+    private void addField(int start, int end, boolean hasQuotes) {
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            quoted = Arrays.copyOf(quoted, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        quoted[fieldCount] = hasQuotes;
+        fieldCount++;
+    }
+
+    private String unquoted(int field) {
+        StringBuilder builder = new StringBuilder(ends[field] - starts[field]);
+        for (int i = starts[field]; i < ends[field]; i++) {
+            if (buffer[i] != '"') {
+                builder.append(buffer[i]);
+            }
+        }
+        return builder.toString().trim();
+    }
+
+    private boolean matches(String value, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i - start) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
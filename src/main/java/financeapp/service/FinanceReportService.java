@@ -1,78 +1,116 @@
 package financeapp.service;
 
+import financeapp.model.CategoryTotals;
+import financeapp.model.Money;
 import financeapp.model.Transaction;
 import financeapp.model.TransactionType;
 import financeapp.model.Wallet;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
 
 public class FinanceReportService {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
 
-    public String buildSummary(String username, Wallet wallet, WalletService walletService) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("Пользователь: ").append(username).append(System.lineSeparator());
-        builder.append("Баланс: ").append(wallet.getBalance()).append(System.lineSeparator());
-        builder.append("Общий доход: ").append(walletService.totalIncome(wallet)).append(System.lineSeparator());
-        builder.append("Общие расходы: ").append(walletService.totalExpense(wallet)).append(System.lineSeparator());
-
-        builder.append(System.lineSeparator()).append("Доходы по категориям:").append(System.lineSeparator());
-        walletService.totalsByCategory(wallet, TransactionType.INCOME)
-                .entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> builder.append(entry.getKey())
-                        .append(": ")
-                        .append(entry.getValue())
-                        .append(System.lineSeparator()));
-
-        builder.append(System.lineSeparator()).append("Расходы по категориям:").append(System.lineSeparator());
-        walletService.totalsByCategory(wallet, TransactionType.EXPENSE)
-                .entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> builder.append(entry.getKey())
-                        .append(": ")
-                        .append(entry.getValue())
-                        .append(System.lineSeparator()));
-
-        builder.append(System.lineSeparator()).append("Бюджеты:").append(System.lineSeparator());
-        wallet.getBudgets().entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    String category = entry.getKey();
-                    builder.append(category)
-                            .append(": ")
-                            .append(entry.getValue())
-                            .append(", Остаток: ");
-                    var remaining = walletService.remainingBudget(wallet, category);
-                    builder.append(remaining == null ? "н/д" : remaining);
-                    builder.append(System.lineSeparator());
-                });
-
-        builder.append(System.lineSeparator()).append("Последние операции:").append(System.lineSeparator());
-        wallet.getTransactions().stream()
-                .sorted(Comparator.comparing(Transaction::getTimestamp).reversed())
-                .limit(5)
-                .forEach(tx -> builder
-                        .append(DATE_FORMATTER.format(tx.getTimestamp()))
-                        .append(" | ")
-                        .append(tx.getType())
-                        .append(" | ")
-                        .append(tx.getCategory())
-                        .append(" | ")
-                        .append(tx.getAmount())
-                        .append(" | ")
-                        .append(tx.getNote())
-                        .append(System.lineSeparator()));
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int BUFFER_SIZE = 1 << 16;
 
-        return builder.toString();
+    private final ReportEngine reportEngine = new ReportEngine();
+
+    public String buildSummary(String username, Wallet wallet) {
+        return render(reportEngine.summarize(username, wallet));
+    }
+
+    public String buildSummary(String username, Wallet wallet, YearMonth budgetMonth) {
+        return render(reportEngine.summarize(username, wallet, budgetMonth));
+    }
+
+    public String render(WalletReport report) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeSummary(report, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    public void writeSummary(WalletReport report, Writer out) throws IOException {
+        line(out, "Пользователь: ", report.username());
+        line(out, "Баланс: ", report.balance().toString());
+        line(out, "Общий доход: ", report.totalIncome().toString());
+        line(out, "Общие расходы: ", report.totalExpense().toString());
+
+        out.write(LINE_SEPARATOR);
+        heading(out, "Доходы по категориям:");
+        writeTotals(out, report.incomeByCategory());
+
+        out.write(LINE_SEPARATOR);
+        heading(out, "Расходы по категориям:");
+        writeTotals(out, report.expenseByCategory());
+
+        out.write(LINE_SEPARATOR);
+        heading(out, "Бюджеты (остаток за " + report.budgetMonth() + "):");
+        for (WalletReport.BudgetLine budget : report.budgets()) {
+            out.write(budget.category());
+            out.write(": ");
+            out.write(budget.limit().toString());
+            out.write(", Остаток: ");
+            out.write(budget.remaining() == null ? "н/д" : budget.remaining().toString());
+            out.write(LINE_SEPARATOR);
+        }
+
+        out.write(LINE_SEPARATOR);
+        heading(out, "Последние операции:");
+        for (Transaction tx : report.recent()) {
+            writeTransaction(out, tx);
+        }
+    }
+
+    // Every transaction in timestamp order, written row by row so memory use does not depend on
+    // the size of the wallet.
+    public void writeStatement(String username, Wallet wallet, Writer out) throws IOException {
+        line(out, "Выписка пользователя: ", username);
+        line(out, "Операций: ", Integer.toString(wallet.getTimeline().size()));
+        out.write(LINE_SEPARATOR);
+        for (Transaction tx : wallet.getTimeline()) {
+            writeTransaction(out, tx);
+        }
+    }
+
+    public void exportSummary(Path file, String username, Wallet wallet) {
+        WalletReport report = reportEngine.summarize(username, wallet);
+        try (Writer writer = openReport(file)) {
+            writeSummary(report, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось записать файл отчета: " + file, e);
+        }
+    }
+
+    public void exportStatement(Path file, String username, Wallet wallet) {
+        try (Writer writer = openReport(file)) {
+            writeStatement(username, wallet, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось записать файл отчета: " + file, e);
+        }
     }
 
-    public String categoryBreakdown(Wallet wallet, WalletService service, String[] categories) {
+    public String categoryBreakdown(Wallet wallet, String[] categories) {
         StringBuilder builder = new StringBuilder();
         for (String category : categories) {
             String normalized = category.trim();
@@ -81,25 +119,19 @@ public class FinanceReportService {
             }
             builder.append(normalized).append(":").append(System.lineSeparator());
 
-            boolean hasTransactions = wallet.getTransactions().stream()
-                    .anyMatch(tx -> tx.getCategory().equalsIgnoreCase(normalized));
-            boolean hasBudget = wallet.getBudgets().keySet().stream()
-                    .anyMatch(key -> key.equalsIgnoreCase(normalized));
-
-            if (!hasTransactions && !hasBudget) {
+            CategoryTotals totals = wallet.categoryTotals(normalized);
+            if (totals == null) {
                 builder.append("  Категория не найдена в кошельке.")
                         .append(System.lineSeparator());
                 continue;
             }
 
-            var expenses = service.expensesForCategory(wallet, normalized);
-            var incomes = service.incomesForCategory(wallet, normalized);
-            var budget = wallet.getBudgetFor(normalized);
-            builder.append("  Доходы: ").append(incomes).append(System.lineSeparator());
-            builder.append("  Расходы: ").append(expenses).append(System.lineSeparator());
-            if (budget != null) {
-                builder.append("  Бюджет: ").append(budget)
-                        .append(", остаток: ").append(service.remainingBudget(wallet, normalized))
+            builder.append("  Доходы: ").append(totals.income()).append(System.lineSeparator());
+            builder.append("  Расходы: ").append(totals.expense()).append(System.lineSeparator());
+            if (totals.budget() != null) {
+                builder.append("  Бюджет: ").append(totals.budget())
+                        .append(", остаток в этом месяце: ")
+                        .append(wallet.categoryTotals(normalized, YearMonth.now()).remaining())
                         .append(System.lineSeparator());
             } else {
                 builder.append("  Бюджет не задан").append(System.lineSeparator());
@@ -108,13 +140,96 @@ public class FinanceReportService {
         return builder.toString();
     }
 
-    public void export(Path file, String content) {
+    public String monthlyReport(Wallet wallet, YearMonth month) {
+        StringBuilder builder = new StringBuilder();
+        String separator = System.lineSeparator();
+        Money income = wallet.totalByType(TransactionType.INCOME, month)
+                .plus(wallet.totalByType(TransactionType.TRANSFER_IN, month));
+        Money expense = wallet.totalByType(TransactionType.EXPENSE, month)
+                .plus(wallet.totalByType(TransactionType.TRANSFER_OUT, month));
+        builder.append("Отчет за ").append(month).append(separator);
+        builder.append("Доходы: ").append(income).append(separator);
+        builder.append("Расходы: ").append(expense).append(separator);
+        builder.append("Итог месяца: ").append(income.minus(expense)).append(separator);
+        appendMonthTotals(builder, "Доходы по категориям:", wallet.totalsByCategory(TransactionType.INCOME, month));
+        appendMonthTotals(builder, "Расходы по категориям:", wallet.totalsByCategory(TransactionType.EXPENSE, month));
+        Map<String, BigDecimal> budgets = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        budgets.putAll(wallet.getBudgets());
+        if (!budgets.isEmpty()) {
+            builder.append("Бюджеты:").append(separator);
+            for (Map.Entry<String, BigDecimal> entry : budgets.entrySet()) {
+                CategoryTotals totals = wallet.categoryTotals(entry.getKey(), month);
+                builder.append("  ").append(entry.getKey()).append(": ").append(entry.getValue())
+                        .append(", израсходовано: ").append(totals.expense())
+                        .append(", остаток: ").append(totals.remaining()).append(separator);
+            }
+        }
+        return builder.toString();
+    }
+
+    public String trendReport(String category, Map<YearMonth, Money> trend) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Динамика расходов: ").append(category == null ? "все категории" : category)
+                .append(System.lineSeparator());
+        trend.forEach((month, amount) -> builder.append("  ").append(month).append(": ").append(amount)
+                .append(System.lineSeparator()));
+        return builder.toString();
+    }
+
+    private static void appendMonthTotals(StringBuilder builder, String title, Map<String, Money> totals) {
+        builder.append(title).append(System.lineSeparator());
+        if (totals.isEmpty()) {
+            builder.append("  нет операций").append(System.lineSeparator());
+            return;
+        }
+        new TreeMap<>(totals).forEach((category, amount) -> builder.append("  ").append(category).append(": ")
+                .append(amount).append(System.lineSeparator()));
+    }
+
+    // A ".gz" suffix compresses the report while it is written.
+    private static Writer openReport(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        OutputStream output = Files.newOutputStream(file);
         try {
-            Files.createDirectories(file.getParent());
-            Files.writeString(file, content);
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
         } catch (IOException e) {
-            throw new IllegalStateException("Не удалось записать файл отчета: " + file, e);
+            output.close();
+            throw e;
         }
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static void writeTotals(Writer out, Map<String, Money> totals) throws IOException {
+        for (Map.Entry<String, Money> entry : totals.entrySet()) {
+            line(out, entry.getKey() + ": ", entry.getValue().toString());
+        }
+    }
+
+    private static void writeTransaction(Writer out, Transaction tx) throws IOException {
+        out.write(tx.getTimestamp() == null ? "-" : DATE_FORMATTER.format(tx.getTimestamp()));
+        out.write(" | ");
+        out.write(tx.getType().name());
+        out.write(" | ");
+        out.write(tx.getCategory());
+        out.write(" | ");
+        out.write(tx.getMoney().toString());
+        out.write(" | ");
+        line(out, tx.getNote(), "");
     }
-}
 
+    private static void heading(Writer out, String text) throws IOException {
+        out.write(text);
+        out.write(LINE_SEPARATOR);
+    }
+
+    private static void line(Writer out, String label, String value) throws IOException {
+        out.write(label);
+        out.write(value);
+        out.write(LINE_SEPARATOR);
+    }
+}
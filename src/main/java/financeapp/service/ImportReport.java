@@ -0,0 +1,16 @@
+package financeapp.service;
+
+import java.time.Duration;
+
+public record ImportReport(int imported, int lines, Duration elapsed, long allocatedBytes) {
+
+    public long rowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return imported * 1_000_000_000L / nanos;
+    }
+
+    // Allocated by this import's own threads over its run, not the heap in use at any moment.
+    public long allocatedMegabytes() {
+        return allocatedBytes / (1024 * 1024);
+    }
+}
@@ -0,0 +1,86 @@
+package financeapp.service;
+
+import financeapp.persistence.WalletLocks;
+
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// A fixed set of locks shared by all logins: a login always maps to the same stripe, so work on
+// one wallet is serialized without keeping a lock object per user. Two-login operations take
+// both stripes in index order, which rules out deadlocks between opposite transfers.
+public class LoginLocks implements WalletLocks {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+
+    public LoginLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public LoginLocks(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two");
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void run(String login, Runnable action) {
+        call(login, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T call(String login, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripe(login)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryRun(String login, Runnable action) {
+        ReentrantLock lock = stripes[stripe(login)];
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            action.run();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void run(String first, String second, Runnable action) {
+        int a = stripe(first);
+        int b = stripe(second);
+        ReentrantLock outer = stripes[Math.min(a, b)];
+        ReentrantLock inner = stripes[Math.max(a, b)];
+        outer.lock();
+        try {
+            inner.lock();
+            try {
+                action.run();
+            } finally {
+                inner.unlock();
+            }
+        } finally {
+            outer.unlock();
+        }
+    }
+
+    // Logins that differ only in case share a stripe, matching how transfers compare logins.
+    int stripe(String login) {
+        int hash = login.toLowerCase(Locale.ROOT).hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
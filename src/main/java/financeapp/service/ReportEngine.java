@@ -0,0 +1,46 @@
+package financeapp.service;
+
+import financeapp.model.CategoryTotals;
+import financeapp.model.Money;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Builds report data from the aggregates Wallet maintains on every write, so the cost depends on
+// the number of categories and budgets shown, not on the length of the history.
+public class ReportEngine {
+    public static final int RECENT_OPERATIONS = 5;
+
+    public WalletReport summarize(String username, Wallet wallet) {
+        return summarize(username, wallet, YearMonth.now());
+    }
+
+    // Budgets are monthly limits: their remainders are taken from the spending of budgetMonth.
+    public WalletReport summarize(String username, Wallet wallet, YearMonth budgetMonth) {
+        Money income = wallet.totalByType(TransactionType.INCOME)
+                .plus(wallet.totalByType(TransactionType.TRANSFER_IN));
+        Money expense = wallet.totalByType(TransactionType.EXPENSE)
+                .plus(wallet.totalByType(TransactionType.TRANSFER_OUT));
+        List<WalletReport.BudgetLine> budgets = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> entry : new TreeMap<>(wallet.getBudgets()).entrySet()) {
+            CategoryTotals totals = wallet.categoryTotals(entry.getKey(), budgetMonth);
+            budgets.add(new WalletReport.BudgetLine(entry.getKey(), entry.getValue(), totals.remaining()));
+        }
+        return new WalletReport(
+                username,
+                wallet.getBalance(),
+                income,
+                expense,
+                new TreeMap<>(wallet.totalsByCategory(TransactionType.INCOME)),
+                new TreeMap<>(wallet.totalsByCategory(TransactionType.EXPENSE)),
+                budgetMonth,
+                budgets,
+                wallet.latest(RECENT_OPERATIONS));
+    }
+}
@@ -1,128 +1,300 @@
 package financeapp.service;
 
+import financeapp.model.Transaction;
 import financeapp.model.TransactionType;
 import financeapp.model.Wallet;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 public class TransactionImportService {
+    public static final long PARALLEL_THRESHOLD_BYTES = 32L * 1024 * 1024;
+    static final int BATCH_SIZE = 1024;
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
     private final WalletService walletService;
+    private final ForkJoinPool pool;
 
     public TransactionImportService(WalletService walletService) {
+        this(walletService, createPool());
+    }
+
+    public TransactionImportService(WalletService walletService, ForkJoinPool pool) {
         this.walletService = walletService;
+        this.pool = pool;
     }
 
     public int importFromCsv(Wallet wallet, Path source) {
-        if (wallet == null) {
-            throw new IllegalArgumentException("Кошелек не найден.");
-        }
-        if (source == null || source.toString().isBlank()) {
-            throw new IllegalArgumentException("Путь к файлу обязателен.");
-        }
-        if (!Files.exists(source)) {
-            throw new IllegalArgumentException("Файл не найден: " + source);
-        }
+        return importWithReport(wallet, source).imported();
+    }
 
-        List<String> lines;
-        try {
-            lines = Files.readAllLines(source, StandardCharsets.UTF_8);
+    public ImportReport importWithReport(Wallet wallet, Path source) {
+        validate(wallet, source);
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        int imported = 0;
+        int lineNumber = 0;
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            CsvLineReader lines = new CsvLineReader(reader, READ_BUFFER_SIZE);
+            while (lines.next()) {
+                lineNumber++;
+                Transaction transaction;
+                try {
+                    transaction = parseLine(tokenizer, lines.buffer(), lines.start(), lines.end(),
+                            lineNumber, lineNumber == 1, LocalDateTime.now());
+                } catch (IllegalArgumentException ex) {
+                    walletService.addTransactions(wallet, batch);
+                    throw ex;
+                }
+                if (transaction == null) {
+                    continue;
+                }
+                batch.add(transaction);
+                imported++;
+                if (batch.size() == BATCH_SIZE) {
+                    walletService.addTransactions(wallet, batch);
+                    batch.clear();
+                }
+            }
         } catch (IOException e) {
+            walletService.addTransactions(wallet, batch);
             throw new IllegalStateException("Не удалось прочитать файл: " + source, e);
         }
+        walletService.addTransactions(wallet, batch);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        return new ImportReport(imported, lineNumber, elapsed, allocatedBytes() - allocatedBefore);
+    }
+
+    public ImportReport importParallel(Wallet wallet, Path source) {
+        return importParallel(wallet, source, pool);
+    }
+
+    public ImportReport importParallel(Wallet wallet, Path source, ForkJoinPool pool) {
+        return importParallel(wallet, source, CHUNK_SIZE, pool);
+    }
 
+    // Splits the file into newline-aligned byte ranges, parses them concurrently and applies the
+    // results to the wallet strictly in file order, so line numbers and partial imports behave as
+    // in importWithReport. All rows share the timestamp taken when the import starts. Only
+    // parallelism + 1 chunks are read ahead of the merge, so memory does not grow with the file.
+    // Allocation is counted on this thread and inside every chunk task, whichever pool thread runs it.
+    ImportReport importParallel(Wallet wallet, Path source, int chunkSize, ForkJoinPool pool) {
+        validate(wallet, source);
+        long allocated = -allocatedBytes();
+        long started = System.nanoTime();
+        LocalDateTime timestamp = LocalDateTime.now();
         int imported = 0;
-        int lineNumber = 0;
-        for (String rawLine : lines) {
-            lineNumber++;
-            String line = rawLine.trim();
-            if (line.isEmpty()) {
-                continue;
+        int lineOffset = 0;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, chunkSize);
+            int chunks = bounds.length - 1;
+            int window = pool.getParallelism() + 1;
+            Deque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>();
+            int submitted = 0;
+            for (int i = 0; i < chunks; i++) {
+                while (submitted < chunks && submitted < i + window) {
+                    inFlight.add(submitChunk(pool, channel, bounds, submitted++, timestamp));
+                }
+                ChunkResult chunk;
+                try {
+                    chunk = inFlight.remove().join();
+                } catch (RuntimeException e) {
+                    inFlight.forEach(task -> task.cancel(false));
+                    throw e;
+                }
+                walletService.addTransactions(wallet, chunk.rows);
+                imported += chunk.rows.size();
+                allocated += chunk.allocated;
+                if (chunk.error != null) {
+                    inFlight.forEach(task -> task.cancel(false));
+                    throw chunk.error.shiftedBy(lineOffset);
+                }
+                lineOffset += chunk.lines;
             }
-            String[] tokens = splitCsvLine(line);
-            if (lineNumber == 1 && isHeader(tokens)) {
-                continue;
-            }
-            if (tokens.length < 3) {
-                throw new IllegalArgumentException(errorMessage(lineNumber, "Нужно минимум три столбца: type, category, amount."));
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Не удалось прочитать файл: " + source, e);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        return new ImportReport(imported, lineOffset, elapsed, allocated + allocatedBytes());
+    }
+
+    private ForkJoinTask<ChunkResult> submitChunk(ForkJoinPool pool, FileChannel channel, long[] bounds, int index,
+                                                  LocalDateTime timestamp) {
+        long from = bounds[index];
+        long to = bounds[index + 1];
+        return pool.submit(() -> parseChunk(channel, from, to, index == 0, timestamp));
+    }
+
+    private ChunkResult parseChunk(FileChannel channel, long from, long to, boolean firstChunk, LocalDateTime timestamp) {
+        long allocatedBefore = allocatedBytes();
+        ByteBuffer bytes = ByteBuffer.allocate((int) (to - from));
+        try {
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, from + bytes.position()) < 0) {
+                    break;
+                }
             }
-            String typeToken = tokens[0].trim().toUpperCase();
-            String category = tokens[1].trim();
-            String amountValue = tokens[2].trim().replace(",", ".");
-            String note = tokens.length > 3 ? tokens[3].trim().replace("\"", "") : "";
-
-            TransactionType type = parseType(typeToken, lineNumber);
-            BigDecimal amount = parseAmount(amountValue, lineNumber);
-
-            if (type == TransactionType.INCOME) {
-                walletService.addIncome(wallet, category, amount, note);
-            } else if (type == TransactionType.EXPENSE) {
-                walletService.addExpense(wallet, category, amount, note);
-            } else {
-                throw new IllegalArgumentException(errorMessage(lineNumber, "Разрешены только типы INCOME или EXPENSE."));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ChunkResult result = new ChunkResult();
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        Reader reader = new InputStreamReader(
+                new ByteArrayInputStream(bytes.array(), 0, bytes.position()), StandardCharsets.UTF_8);
+        CsvLineReader lines = new CsvLineReader(reader, READ_BUFFER_SIZE);
+        try {
+            while (lines.next()) {
+                result.lines++;
+                Transaction transaction = parseLine(tokenizer, lines.buffer(), lines.start(), lines.end(),
+                        result.lines, firstChunk && result.lines == 1, timestamp);
+                if (transaction != null) {
+                    result.rows.add(transaction);
+                }
             }
-            imported++;
+        } catch (CsvRowException ex) {
+            result.error = ex;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return imported;
+        result.allocated = allocatedBytes() - allocatedBefore;
+        return result;
     }
 
-    private String[] splitCsvLine(String line) {
-        List<String> parts = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean quoted = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (c == '"') {
-                quoted = !quoted;
-                continue;
+    private static long[] chunkBounds(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < size) {
+            long boundary = size;
+            long scan = position;
+            while (scan < size && boundary == size) {
+                probe.clear();
+                int read = channel.read(probe, scan);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        boundary = scan + i + 1;
+                        break;
+                    }
+                }
+                scan += read;
             }
-            if (!quoted && (c == ';' || c == ',')) {
-                parts.add(current.toString());
-                current.setLength(0);
-            } else {
-                current.append(c);
+            if (boundary >= size) {
+                break;
             }
+            bounds.add(boundary);
+            position = boundary + chunkSize;
         }
-        parts.add(current.toString());
-        return parts.toArray(new String[0]);
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
     }
 
-    private boolean isHeader(String[] tokens) {
-        return tokens.length >= 3
-                && tokens[0].equalsIgnoreCase("type")
-                && tokens[1].equalsIgnoreCase("category")
-                && tokens[2].equalsIgnoreCase("amount");
+    private static ForkJoinPool createPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("csv-import-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
     }
 
-    private TransactionType parseType(String token, int lineNumber) {
-        return switch (token) {
-            case "INCOME" -> TransactionType.INCOME;
-            case "EXPENSE" -> TransactionType.EXPENSE;
-            default -> throw new IllegalArgumentException(errorMessage(lineNumber,
-                    "Тип должен быть INCOME или EXPENSE."));
-        };
+    private static void validate(Wallet wallet, Path source) {
+        if (wallet == null) {
+            throw new IllegalArgumentException("Кошелек не найден.");
+        }
+        if (source == null || source.toString().isBlank()) {
+            throw new IllegalArgumentException("Путь к файлу обязателен.");
+        }
+        if (!Files.exists(source)) {
+            throw new IllegalArgumentException("Файл не найден: " + source);
+        }
     }
 
-    private BigDecimal parseAmount(String token, int lineNumber) {
-        try {
-            BigDecimal value = new BigDecimal(token);
-            if (value.signum() <= 0) {
-                throw new IllegalArgumentException();
-            }
-            return value.setScale(2, RoundingMode.HALF_UP);
-        } catch (Exception ex) {
-            throw new IllegalArgumentException(errorMessage(lineNumber, "Сумма должна быть положительным числом. Значение: " + token));
+    // Returns null for blank lines and for a header on the first line of the file.
+    private Transaction parseLine(CsvTokenizer tokenizer, char[] buffer, int start, int end,
+                                  int lineNumber, boolean firstLine, LocalDateTime timestamp) {
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        if (start == end) {
+            return null;
+        }
+        int fields = tokenizer.tokenize(buffer, start, end);
+        if (firstLine && isHeader(tokenizer)) {
+            return null;
+        }
+        if (fields < 3) {
+            throw new CsvRowException(lineNumber, "Нужно минимум три столбца: type, category, amount.");
         }
+        TransactionType type = parseType(tokenizer, lineNumber);
+        long cents = tokenizer.fieldCents(2);
+        if (cents <= 0) {
+            throw new CsvRowException(lineNumber,
+                    "Сумма должна быть положительным числом. Значение: " + tokenizer.field(2).replace(",", "."));
+        }
+        String category = tokenizer.cachedField(1);
+        String note = fields > 3 ? tokenizer.field(3) : "";
+        return new Transaction(category, BigDecimal.valueOf(cents, 2), type, note, timestamp, "");
     }
 
-    private String errorMessage(int line, String message) {
-        return "Строка " + line + ": " + message;
+    // Bytes allocated by the calling thread so far. Unlike heap pool peaks this belongs to one thread,
+    // so concurrent imports do not disturb each other's figure. 0 on JVMs that do not track it.
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
     }
-}
 
+    private boolean isHeader(CsvTokenizer tokenizer) {
+        return tokenizer.fieldCount() >= 3
+                && tokenizer.fieldEqualsIgnoreCase(0, "type")
+                && tokenizer.fieldEqualsIgnoreCase(1, "category")
+                && tokenizer.fieldEqualsIgnoreCase(2, "amount");
+    }
+
+    private TransactionType parseType(CsvTokenizer tokenizer, int lineNumber) {
+        if (tokenizer.fieldEqualsIgnoreCase(0, "INCOME")) {
+            return TransactionType.INCOME;
+        }
+        if (tokenizer.fieldEqualsIgnoreCase(0, "EXPENSE")) {
+            return TransactionType.EXPENSE;
+        }
+        throw new CsvRowException(lineNumber, "Тип должен быть INCOME или EXPENSE.");
+    }
+
+    private static final class ChunkResult {
+        private final List<Transaction> rows = new ArrayList<>();
+        private int lines;
+        private CsvRowException error;
+        private long allocated;
+    }
+}
@@ -1,14 +1,50 @@
 package financeapp.service;
 
+import financeapp.model.Transaction;
 import financeapp.model.Wallet;
+import financeapp.persistence.TransferLog;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 
+// Both wallets change under both login locks, so a concurrent transfer, import or session command
+// on either side never sees only half of a transfer. The recipient wallet comes from the store;
+// with CachingWalletStore that is the instance an active recipient session is using.
+//
+// Both rows are built and checked before either wallet changes, and a failure after that takes
+// back whatever was already applied. Both rows carry one transfer id. With a TransferLog the
+// transfer is logged before either wallet changes, so the wallets are saved like any other change
+// and recover replays whatever a crash kept off disk. A full log segment is checkpointed in the
+// background: every wallet it mentions is saved and synced under its lock, then the segment goes.
 public class TransferService {
     private final WalletService walletService;
+    private final TransferLog log;
+    private final Executor checkpoints;
 
     public TransferService(WalletService walletService) {
+        this(walletService, null, null);
+    }
+
+    public TransferService(WalletService walletService, TransferLog log) {
+        this(walletService, log, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    TransferService(WalletService walletService, TransferLog log, Executor checkpoints) {
         this.walletService = walletService;
+        this.log = log;
+        this.checkpoints = checkpoints;
     }
 
     public void transfer(String senderLogin,
@@ -22,9 +58,109 @@ public class TransferService {
         if (senderLogin.equalsIgnoreCase(recipientLogin)) {
             throw new IllegalArgumentException("Нельзя переводить средства самому себе.");
         }
-        Wallet recipientWallet = walletService.loadWallet(recipientLogin);
-        walletService.registerTransferOut(senderWallet, category, amount, recipientLogin);
-        walletService.registerTransferIn(recipientWallet, category, amount, senderLogin);
-        walletService.saveWallet(recipientLogin, recipientWallet);
+        LocalDateTime timestamp = LocalDateTime.now();
+        long id = nextTransferId();
+        Transaction out = walletService.transferOut(category, amount, recipientLogin, timestamp, id);
+        Transaction in = walletService.transferIn(category, amount, senderLogin, timestamp, id);
+        walletService.getLocks().run(senderLogin, recipientLogin, () -> {
+            Wallet recipientWallet = walletService.loadWallet(recipientLogin);
+            senderWallet.checkAdd(out);
+            recipientWallet.checkAdd(in);
+            TransferLog.Entry entry = log == null ? null
+                    : log.append(id, senderLogin, recipientLogin, out.getCategory(), out.getAmountMinor(), timestamp);
+            try {
+                senderWallet.addTransaction(out);
+                recipientWallet.addTransaction(in);
+                walletService.saveWallet(recipientLogin, recipientWallet);
+                walletService.saveWallet(senderLogin, senderWallet);
+            } catch (RuntimeException ex) {
+                rollBack(ex, entry, senderLogin, senderWallet, out, recipientLogin, recipientWallet, in);
+                throw ex;
+            }
+        });
+        if (log != null) {
+            TransferLog.Segment full = log.rotateIfFull();
+            if (full != null) {
+                checkpoints.execute(() -> checkpoint(full));
+            }
+        }
+    }
+
+    // Replays logged transfers that a wallet does not hold yet, then checkpoints them. Call once at
+    // startup, before any session opens.
+    public void recover() {
+        if (log == null || log.recovered().isEmpty()) {
+            return;
+        }
+        Map<String, Set<Long>> applied = new HashMap<>();
+        for (TransferLog.Entry entry : log.recovered()) {
+            BigDecimal amount = BigDecimal.valueOf(entry.amountMinor(), 2);
+            walletService.getLocks().run(entry.sender(), entry.recipient(), () -> {
+                redo(entry.sender(), applied, walletService.transferOut(entry.category(), amount,
+                        entry.recipient(), entry.timestamp(), entry.id()));
+                redo(entry.recipient(), applied, walletService.transferIn(entry.category(), amount,
+                        entry.sender(), entry.timestamp(), entry.id()));
+            });
+        }
+        checkpoint(log.recoveredSegments());
+    }
+
+    // Either wallet may already be saved with its row, so both are saved again without it and the
+    // logged transfer is aborted. If that fails too, recover completes the transfer on the next start.
+    private void rollBack(RuntimeException failure, TransferLog.Entry entry,
+                          String senderLogin, Wallet senderWallet, Transaction out,
+                          String recipientLogin, Wallet recipientWallet, Transaction in) {
+        recipientWallet.removeTransaction(in);
+        senderWallet.removeTransaction(out);
+        try {
+            walletService.saveWallet(recipientLogin, recipientWallet);
+            walletService.saveWallet(senderLogin, senderWallet);
+            if (entry != null) {
+                log.abort(entry);
+            }
+        } catch (RuntimeException ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    private void redo(String login, Map<String, Set<Long>> applied, Transaction row) {
+        Wallet wallet = walletService.loadWallet(login);
+        Set<Long> ids = applied.computeIfAbsent(login, key -> transferIds(wallet));
+        if (ids.add(row.getTransferId())) {
+            wallet.addTransaction(row);
+            walletService.saveWallet(login, wallet);
+        }
+    }
+
+    // A segment that cannot be checkpointed stays on disk and is replayed at the next start.
+    private void checkpoint(TransferLog.Segment segment) {
+        try {
+            for (String login : new LinkedHashSet<>(segment.logins())) {
+                walletService.getLocks().run(login, () ->
+                        walletService.saveDurably(login, walletService.loadWallet(login)));
+            }
+            log.release(segment);
+        } catch (RuntimeException ignored) {
+            // Nothing is lost: the segment is still there.
+        }
+    }
+
+    private static Set<Long> transferIds(Wallet wallet) {
+        Set<Long> ids = new HashSet<>();
+        for (Transaction transaction : wallet.getTransactions()) {
+            if (transaction.getTransferId() != 0) {
+                ids.add(transaction.getTransferId());
+            }
+        }
+        return ids;
+    }
+
+    // Random, so ids stay unique across restarts without state of their own; 0 means no transfer.
+    private static long nextTransferId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
     }
 }
@@ -0,0 +1,23 @@
+package financeapp.service;
+
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.SortedMap;
+
+public record WalletReport(String username,
+                           Money balance,
+                           Money totalIncome,
+                           Money totalExpense,
+                           SortedMap<String, Money> incomeByCategory,
+                           SortedMap<String, Money> expenseByCategory,
+                           YearMonth budgetMonth,
+                           List<BudgetLine> budgets,
+                           List<Transaction> recent) {
+
+    public record BudgetLine(String category, BigDecimal limit, Money remaining) {
+    }
+}
@@ -1,30 +1,95 @@
 package financeapp.service;
 
+import financeapp.model.Money;
 import financeapp.model.Transaction;
+import financeapp.model.TransactionPage;
+import financeapp.model.TransactionQuery;
 import financeapp.model.TransactionType;
 import financeapp.model.Wallet;
 import financeapp.persistence.WalletStore;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class WalletService {
     private final WalletStore repository;
+    private final LoginLocks locks;
+    private final WriteBehindSaver saver;
 
     public WalletService(WalletStore repository) {
+        this(repository, new LoginLocks());
+    }
+
+    public WalletService(WalletStore repository, LoginLocks locks) {
+        this(repository, locks, null);
+    }
+
+    // With a saver, saveWallet only queues the wallet and the write happens in the background.
+    public WalletService(WalletStore repository, LoginLocks locks, WriteBehindSaver saver) {
         this.repository = repository;
+        this.locks = locks;
+        this.saver = saver;
     }
 
+    // Shared by everything that reads or changes a wallet outside its own session: transfers,
+    // imports and the session commands themselves.
+    public LoginLocks getLocks() {
+        return locks;
+    }
+
+    // A wallet still waiting in the write-behind queue is newer than the file, so it wins.
     public Wallet loadWallet(String login) {
-        return repository.load(login);
+        if (saver == null) {
+            return repository.load(login);
+        }
+        return locks.call(login, () -> {
+            Wallet pending = saver.pending(login);
+            return pending != null ? pending : repository.load(login);
+        });
     }
 
     public void saveWallet(String login, Wallet wallet) {
+        if (saver != null) {
+            saver.markDirty(login, wallet);
+        } else {
+            repository.save(login, wallet);
+        }
+    }
+
+    // Writes the wallet and forces it to stable storage before returning, whatever the save delay.
+    // Call under the login lock; if the wallet is also queued for write-behind, that later write
+    // only repeats this one.
+    public void saveDurably(String login, Wallet wallet) {
         repository.save(login, wallet);
+        repository.sync(login);
+    }
+
+    // While a session is open its wallet stays resident, so transfers and imports into that login
+    // update the instance the session is working with.
+    public void openSession(String login) {
+        repository.pin(login);
+    }
+
+    public void closeSession(String login) {
+        try {
+            if (saver != null) {
+                saver.flush(login);
+            }
+        } finally {
+            repository.unpin(login);
+        }
+    }
+
+    public void flush() {
+        if (saver != null) {
+            saver.flushAll();
+        }
+        repository.flush();
     }
 
     public void addIncome(Wallet wallet, String category, BigDecimal amount, String note) {
@@ -49,78 +114,123 @@ public class WalletService {
         ));
     }
 
-    public void registerTransferOut(Wallet wallet, String category, BigDecimal amount, String recipient) {
-        wallet.addTransaction(new Transaction(
+    public void addTransactions(Wallet wallet, List<Transaction> transactions) {
+        if (!transactions.isEmpty()) {
+            wallet.addTransactions(transactions);
+        }
+    }
+
+    // Transfer rows are built without touching a wallet, so both sides can be checked before
+    // either wallet changes. Both sides of one transfer share the timestamp and the transfer id.
+    public Transaction transferOut(String category, BigDecimal amount, String recipient, LocalDateTime timestamp,
+                                   long transferId) {
+        return new Transaction(
                 category,
-                amount,
+                Money.toMinor(amount),
                 TransactionType.TRANSFER_OUT,
                 "Перевод пользователю " + recipient,
-                LocalDateTime.now(),
-                recipient
-        ));
+                timestamp,
+                recipient,
+                transferId
+        );
     }
 
-    public void registerTransferIn(Wallet wallet, String category, BigDecimal amount, String sender) {
-        wallet.addTransaction(new Transaction(
+    public Transaction transferIn(String category, BigDecimal amount, String sender, LocalDateTime timestamp,
+                                  long transferId) {
+        return new Transaction(
                 category,
-                amount,
+                Money.toMinor(amount),
                 TransactionType.TRANSFER_IN,
                 "Перевод от пользователя " + sender,
-                LocalDateTime.now(),
-                sender
-        ));
+                timestamp,
+                sender,
+                transferId
+        );
+    }
+
+    public void registerTransferOut(Wallet wallet, String category, BigDecimal amount, String recipient) {
+        wallet.addTransaction(transferOut(category, amount, recipient, LocalDateTime.now(), 0));
+    }
+
+    public void registerTransferIn(Wallet wallet, String category, BigDecimal amount, String sender) {
+        wallet.addTransaction(transferIn(category, amount, sender, LocalDateTime.now(), 0));
     }
 
     public void setBudget(Wallet wallet, String category, BigDecimal amount) {
         wallet.setBudget(category, amount);
     }
 
-    public BigDecimal totalIncome(Wallet wallet) {
+    public Money totalIncome(Wallet wallet) {
         return wallet.totalByType(TransactionType.INCOME)
-                .add(wallet.totalByType(TransactionType.TRANSFER_IN))
-                .setScale(2, RoundingMode.HALF_UP);
+                .plus(wallet.totalByType(TransactionType.TRANSFER_IN));
     }
 
-    public BigDecimal totalExpense(Wallet wallet) {
+    public Money totalExpense(Wallet wallet) {
         return wallet.totalByType(TransactionType.EXPENSE)
-                .add(wallet.totalByType(TransactionType.TRANSFER_OUT))
-                .setScale(2, RoundingMode.HALF_UP);
+                .plus(wallet.totalByType(TransactionType.TRANSFER_OUT));
     }
 
-    public Map<String, BigDecimal> totalsByCategory(Wallet wallet, TransactionType type) {
-        Map<String, BigDecimal> totals = wallet.totalsByCategory(type);
-        Map<String, BigDecimal> scaled = new HashMap<>();
-        for (Map.Entry<String, BigDecimal> entry : totals.entrySet()) {
-            scaled.put(entry.getKey(), entry.getValue().setScale(2, RoundingMode.HALF_UP));
-        }
-        return Collections.unmodifiableMap(scaled);
+    public Map<String, Money> totalsByCategory(Wallet wallet, TransactionType type) {
+        return Collections.unmodifiableMap(wallet.totalsByCategory(type));
+    }
+
+    public Money expensesForCategory(Wallet wallet, String category) {
+        return wallet.getExpensesFor(category);
     }
 
-    public BigDecimal expensesForCategory(Wallet wallet, String category) {
-        return wallet.getTransactions().stream()
-                .filter(tx -> tx.getType() == TransactionType.EXPENSE || tx.getType() == TransactionType.TRANSFER_OUT)
-                .filter(tx -> tx.getCategory().equalsIgnoreCase(category))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+    public Money incomesForCategory(Wallet wallet, String category) {
+        return wallet.getIncomesFor(category);
     }
 
-    public BigDecimal incomesForCategory(Wallet wallet, String category) {
-        return wallet.getTransactions().stream()
-                .filter(tx -> tx.getType() == TransactionType.INCOME || tx.getType() == TransactionType.TRANSFER_IN)
-                .filter(tx -> tx.getCategory().equalsIgnoreCase(category))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+    public Money expensesForCategory(Wallet wallet, String category, YearMonth month) {
+        return wallet.getExpensesFor(category, month);
     }
 
-    public BigDecimal remainingBudget(Wallet wallet, String category) {
+    // Budgets are monthly limits, so the remainder is measured against the current month's spending.
+    public Money remainingBudget(Wallet wallet, String category) {
+        return remainingBudget(wallet, category, YearMonth.now());
+    }
+
+    public Money remainingBudget(Wallet wallet, String category, YearMonth month) {
         BigDecimal budget = wallet.getBudgetFor(category);
         if (budget == null) {
             return null;
         }
-        BigDecimal spent = expensesForCategory(wallet, category);
-        return budget.subtract(spent).setScale(2, RoundingMode.HALF_UP);
+        return Money.of(budget).minus(expensesForCategory(wallet, category, month));
+    }
+
+    // Expenses per month for the `months` months ending with `last`, oldest first; a null category
+    // means all expenses. Each month is one lookup in the wallet's monthly aggregate.
+    public Map<YearMonth, Money> expenseTrend(Wallet wallet, String category, YearMonth last, int months) {
+        if (months < 1) {
+            throw new IllegalArgumentException("Число месяцев должно быть положительным.");
+        }
+        Map<YearMonth, Money> trend = new LinkedHashMap<>();
+        for (YearMonth month = last.minusMonths(months - 1L); !month.isAfter(last); month = month.plusMonths(1)) {
+            trend.put(month, category == null
+                    ? wallet.totalByType(TransactionType.EXPENSE, month)
+                            .plus(wallet.totalByType(TransactionType.TRANSFER_OUT, month))
+                    : wallet.getExpensesFor(category, month));
+        }
+        return trend;
+    }
+
+    public TransactionPage listTransactions(Wallet wallet, TransactionQuery query, int page, int size) {
+        if (page < 1 || size < 1) {
+            throw new IllegalArgumentException("Номер и размер страницы должны быть положительными.");
+        }
+        long offset = (long) (page - 1) * size;
+        if (offset > Integer.MAX_VALUE) {
+            return new TransactionPage(List.of(), -1);
+        }
+        return wallet.page(query, wallet.cursorAt(query, (int) offset), size);
+    }
+
+    public TransactionPage listTransactionsFrom(Wallet wallet, TransactionQuery query, int cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным.");
+        }
+        return wallet.page(query, cursor, size);
     }
 
     public int renameCategory(Wallet wallet, String from, String to) {
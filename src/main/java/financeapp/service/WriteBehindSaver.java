@@ -0,0 +1,155 @@
+package financeapp.service;
+
+import financeapp.model.Wallet;
+import financeapp.persistence.WalletStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Takes wallet saves off the command path. A save only records the wallet as dirty; repeated
+// saves of one login before the next flush collapse into a single write. The first dirty mark
+// schedules a flush on a background thread after maxDelay, which bounds how long a change can
+// stay in memory only. Each wallet is written under its login lock, so a flush never serializes
+// a wallet while a command is changing it.
+public class WriteBehindSaver implements AutoCloseable {
+    public enum Fsync {
+        // Leave written data to the operating system.
+        NONE,
+        // Write every dirty wallet of a flush first, then force each of their files once.
+        BATCH
+    }
+
+    private final WalletStore store;
+    private final LoginLocks locks;
+    private final long maxDelayNanos;
+    private final Fsync fsync;
+    private final Map<String, Wallet> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile RuntimeException lastFailure;
+
+    public WriteBehindSaver(WalletStore store, LoginLocks locks, Duration maxDelay, Fsync fsync) {
+        this.store = store;
+        this.locks = locks;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.fsync = fsync;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void markDirty(String login, Wallet wallet) {
+        requests.incrementAndGet();
+        dirty.put(login, wallet);
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                flusher.schedule(this::flushInBackground, maxDelayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ex) {
+                // Closed: nothing will flush later, so write through.
+                scheduled.set(false);
+                flush(login);
+            }
+        }
+    }
+
+    // Writes the login's pending wallet now, on the calling thread.
+    public void flush(String login) {
+        if (writePending(login) && fsync == Fsync.BATCH) {
+            store.sync(login);
+        }
+    }
+
+    // The wallet saved for this login but not written yet, or null.
+    public Wallet pending(String login) {
+        return dirty.get(login);
+    }
+
+    // Writes every pending wallet now, on the calling thread; the first failure is rethrown after
+    // the remaining wallets have been attempted.
+    public void flushAll() {
+        RuntimeException failure = drain();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(requests.get(), writes.get(), dirty.size(), lastFailure);
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flushAll();
+    }
+
+    private void flushInBackground() {
+        scheduled.set(false);
+        RuntimeException failure = drain();
+        if (failure != null) {
+            lastFailure = failure;
+        }
+        if (!dirty.isEmpty() && scheduled.compareAndSet(false, true) && !flusher.isShutdown()) {
+            flusher.schedule(this::flushInBackground, maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private RuntimeException drain() {
+        RuntimeException failure = null;
+        List<String> written = new ArrayList<>();
+        for (String login : List.copyOf(dirty.keySet())) {
+            try {
+                if (writePending(login)) {
+                    written.add(login);
+                }
+            } catch (RuntimeException ex) {
+                failure = failure == null ? ex : failure;
+            }
+        }
+        if (fsync == Fsync.BATCH) {
+            for (String login : written) {
+                try {
+                    store.sync(login);
+                } catch (RuntimeException ex) {
+                    failure = failure == null ? ex : failure;
+                }
+            }
+        }
+        return failure;
+    }
+
+    // Taking the wallet out of the queue and writing it happen under the login lock, so a loader
+    // holding that lock sees the wallet either still pending or already on disk.
+    private boolean writePending(String login) {
+        return locks.call(login, () -> {
+            Wallet wallet = dirty.remove(login);
+            if (wallet == null) {
+                return false;
+            }
+            try {
+                store.save(login, wallet);
+            } catch (RuntimeException ex) {
+                dirty.putIfAbsent(login, wallet);
+                throw ex;
+            }
+            writes.incrementAndGet();
+            return true;
+        });
+    }
+
+    public record Stats(long saveRequests, long writes, int pending, RuntimeException lastFailure) {
+    }
+}
@@ -0,0 +1,86 @@
+package financeapp.app;
+
+import financeapp.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void scriptAndJsonLinesRunWithOneResultPerCommand() throws IOException {
+        AppServices services = AppServices.create(dir.resolve("data"));
+        services.getAuthService().register("alice", "secret1");
+        Path script = dir.resolve("reconcile.txt");
+        Files.writeString(script, String.join("\n",
+                "# monthly reconciliation",
+                "add-income Salary 1000",
+                "set-budget food 100",
+                "add-expense food 12,50 \"business lunch\"",
+                "{\"command\":\"add-expense\",\"category\":\"Food\",\"amount\":80,\"note\":\"groceries \\\"bio\\\"\"}",
+                "add-expense food -5",
+                "rename-category nope other",
+                "fly-away",
+                ""));
+        StringWriter output = new StringWriter();
+
+        int failed = new BatchRunner(services).run("alice", "secret1", script, output);
+
+        List<String> lines = output.toString().lines().toList();
+        assertEquals(2, failed);
+        assertEquals(8, lines.size());
+        assertEquals("{\"line\":2,\"command\":\"add-income\",\"status\":\"ok\"}", lines.get(0));
+        assertTrue(lines.get(4).startsWith("{\"line\":6,\"command\":\"add-expense\",\"status\":\"error\""));
+        assertEquals("{\"line\":7,\"command\":\"rename-category\",\"status\":\"ok\",\"updated\":0}", lines.get(5));
+        assertTrue(lines.get(7).startsWith("{\"status\":\"done\",\"commands\":7,\"failed\":2,\"balance\":\"907.50\""));
+        assertTrue(lines.get(7).contains("'food' израсходована на 93%"), lines.get(7));
+        assertEquals(Money.of(new BigDecimal("907.50")),
+                services.getWalletService().loadWallet("alice").getBalance());
+        assertEquals("groceries \"bio\"",
+                services.getWalletService().loadWallet("alice").getTimeline().get(2).getNote());
+    }
+
+    @Test
+    void sessionTokenRunsABatchWithoutThePassword() throws IOException {
+        AppServices services = AppServices.create(dir.resolve("data"));
+        services.getAuthService().register("dave", "secret1");
+        String token = services.getAuthService().login("dave", "secret1").orElseThrow();
+        services.getAuthService().detach(token);
+        Path script = dir.resolve("script.txt");
+        Files.writeString(script, "add-income Salary 10\n");
+
+        assertEquals(0, new BatchRunner(services).run(token, script, new StringWriter()));
+        assertEquals(0, new BatchRunner(services).run(token, script, new StringWriter()));
+        assertEquals(Money.of(new BigDecimal("20")),
+                services.getWalletService().loadWallet("dave").getBalance());
+
+        services.getAuthService().logout(token);
+        StringWriter output = new StringWriter();
+        assertEquals(-1, new BatchRunner(services).run(token, script, output));
+        assertTrue(output.toString().contains("Токен недействителен"), output.toString());
+    }
+
+    @Test
+    void wrongPasswordRunsNothing() throws IOException {
+        AppServices services = AppServices.create(dir.resolve("data"));
+        services.getAuthService().register("bob", "secret1");
+        Path script = dir.resolve("script.txt");
+        Files.writeString(script, "add-income Salary 10\n");
+        StringWriter output = new StringWriter();
+
+        assertEquals(-1, new BatchRunner(services).run("bob", "wrong-one", script, output));
+        assertTrue(output.toString().contains("\"status\":\"error\""));
+    }
+}
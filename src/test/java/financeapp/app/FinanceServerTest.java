@@ -0,0 +1,112 @@
+package financeapp.app;
+
+import financeapp.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FinanceServerTest {
+
+    @Test
+    void concurrentConnectionsShareOneServiceStack(@TempDir Path dir) throws Exception {
+        AppServices services = AppServices.create(dir);
+        int clients = 40;
+        try (FinanceServer server = new FinanceServer(services, 0)) {
+            server.start();
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            try {
+                List<Future<String>> transcripts = new ArrayList<>();
+                for (int i = 0; i < clients; i++) {
+                    String login = "client" + i;
+                    transcripts.add(executor.submit(() -> converse(server.getPort(), login)));
+                }
+                for (Future<String> transcript : transcripts) {
+                    String output = transcript.get();
+                    assertTrue(output.contains("Добро пожаловать"), output);
+                    assertTrue(output.endsWith("До встречи!" + System.lineSeparator()), output);
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        for (int i = 0; i < clients; i++) {
+            assertEquals(Money.of(new BigDecimal("300")),
+                    services.getWalletService().loadWallet("client" + i).getBalance());
+        }
+    }
+
+    @Test
+    void remoteClientsCannotReachFilesOrOtherWallets(@TempDir Path dir) throws Exception {
+        AppServices services = AppServices.create(dir);
+        try (FinanceServer server = new FinanceServer(services, 0)) {
+            server.start();
+            String output = send(server.getPort(), "2\n../../escape\nsecret1\n"
+                    + "2\nmallory\nsecret1\n1\nmallory\nsecret1\n"
+                    + "export-statement\nbulk-import\nlogout\n3\n");
+
+            assertTrue(output.contains("Логин не должен содержать"), output);
+            assertFalse(output.contains("export-statement"), output);
+            assertEquals(2, output.split("Команда доступна только в локальной консоли.", -1).length - 1, output);
+        }
+        assertFalse(services.getAuthService().exists("../../escape"));
+    }
+
+    @Test
+    void clientsResumeWithTheTokenInsteadOfThePassword(@TempDir Path dir) throws Exception {
+        AppServices services = AppServices.create(dir);
+        try (FinanceServer server = new FinanceServer(services, 0)) {
+            server.start();
+            String first = send(server.getPort(), "2\ncarol\nsecret1\n1\ncarol\nsecret1\n"
+                    + "add-income\nSalary\n100\n\n");
+            Matcher issued = Pattern.compile("Токен сессии: (\\S+)").matcher(first);
+            assertTrue(issued.find(), first);
+            String token = issued.group(1);
+
+            String resumed = send(server.getPort(), "4\n" + token + "\nadd-income\nSalary\n50\n\nlogout\n"
+                    + "4\n" + token + "\n3\n");
+            assertTrue(resumed.contains("Добро пожаловать, carol!"), resumed);
+            assertTrue(resumed.contains("Токен недействителен или истёк."), resumed);
+        }
+        assertEquals(Money.of(new BigDecimal("150")),
+                services.getWalletService().loadWallet("carol").getBalance());
+    }
+
+    private static String converse(int port, String login) throws IOException {
+        return send(port, "2\n" + login + "\nsecret1\n"
+                + "1\n" + login + "\nsecret1\n"
+                + "add-income\nSalary\n100\n\n".repeat(3)
+                + "logout\n3\n");
+    }
+
+    private static String send(int port, String script) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream output = socket.getOutputStream();
+            output.write(script.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            // Ends the input like a dropped client; scripts that exit normally get the same transcript.
+            socket.shutdownOutput();
+            InputStream input = socket.getInputStream();
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package financeapp.auth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+
+    @Test
+    void sha256MatchesKnownDigestFromManyThreads() throws Exception {
+        PasswordHasher hasher = new PasswordHasher();
+        String expected = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> hashes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                hashes.add(executor.submit(() -> hasher.hash("abc")));
+            }
+            for (Future<String> hash : hashes) {
+                assertEquals(expected, hash.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void pbkdf2HashesAreSaltedAndVerified() {
+        PasswordHasher hasher = new PasswordHasher(1000);
+        String first = hasher.encode("secret1").join();
+        String second = hasher.encode("secret1").join();
+
+        assertTrue(first.startsWith("pbkdf2$1000$"));
+        assertNotEquals(first, second, "Each hash needs its own salt");
+        assertTrue(hasher.verify("secret1", first).join());
+        assertFalse(hasher.verify("secret2", first).join());
+        assertFalse(hasher.verify("secret1", "pbkdf2$broken").join());
+        assertTrue(hasher.verify("abc", new PasswordHasher().hash("abc")).join());
+    }
+
+    @Test
+    void legacyHashIsUpgradedOnLogin(@TempDir Path dir) {
+        Path users = dir.resolve("users.dat");
+        assertTrue(new AuthService(users).register("alice", "secret1"));
+
+        AuthService upgraded = new AuthService(users, new PasswordHasher(1000));
+        assertTrue(upgraded.authenticate("alice", "secret1"));
+
+        String stored = new UserAccountStore(users).find("alice").orElseThrow().getPasswordHash();
+        assertTrue(stored.startsWith("pbkdf2$1000$"), "Legacy hash should be re-derived");
+        assertTrue(upgraded.authenticate("alice", "secret1"));
+        assertFalse(upgraded.authenticate("alice", "wrong-password"));
+    }
+}
@@ -0,0 +1,101 @@
+package financeapp.auth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionManagerTest {
+
+    @Test
+    void tokensSlideExpireAndStayBounded() {
+        MutableClock clock = new MutableClock();
+        SessionManager sessions = new SessionManager(Duration.ofMinutes(10), 16, clock);
+        String token = sessions.issue("alice");
+        assertNotEquals(token, sessions.issue("alice"));
+
+        clock.advance(Duration.ofMinutes(9));
+        assertEquals(Optional.of("alice"), sessions.validate(token));
+        clock.advance(Duration.ofMinutes(9));
+        assertEquals(Optional.of("alice"), sessions.validate(token), "Validation should extend the session");
+        clock.advance(Duration.ofMinutes(11));
+        assertEquals(Optional.empty(), sessions.validate(token));
+
+        for (int i = 0; i < 100; i++) {
+            clock.advance(Duration.ofSeconds(1));
+            sessions.issue("user" + i);
+        }
+        assertTrue(sessions.size() <= 16, "Session table must stay bounded");
+        assertEquals(Optional.empty(), sessions.validate("not-a-token"));
+    }
+
+    @Test
+    void attachedSessionsNeitherExpireNorGetEvicted() {
+        MutableClock clock = new MutableClock();
+        SessionManager sessions = new SessionManager(Duration.ofMinutes(10), 16, clock);
+        String live = sessions.issue("alice", true);
+        String resumed = sessions.issue("bob");
+        assertEquals(Optional.of("bob"), sessions.attach(resumed));
+
+        clock.advance(Duration.ofHours(5));
+        for (int i = 0; i < 100; i++) {
+            sessions.issue("user" + i);
+        }
+        assertEquals(Optional.of("alice"), sessions.validate(live));
+        assertEquals(Optional.of("bob"), sessions.validate(resumed));
+
+        sessions.detach(resumed);
+        clock.advance(Duration.ofMinutes(9));
+        assertEquals(Optional.of("bob"), sessions.attach(resumed), "A detached token can be resumed");
+        sessions.detach(resumed);
+        clock.advance(Duration.ofMinutes(11));
+        assertEquals(Optional.empty(), sessions.attach(resumed));
+        assertEquals(Optional.of("alice"), sessions.validate(live));
+    }
+
+    @Test
+    void loginIssuesTokenAndLogoutRevokesIt(@TempDir Path dir) {
+        AuthService auth = new AuthService(dir.resolve("users.dat"));
+        auth.register("alice", "secret1");
+
+        assertEquals(Optional.empty(), auth.login("alice", "wrong-password"));
+        String token = auth.login("alice", "secret1").orElseThrow();
+        assertEquals(Optional.of("alice"), auth.validate(token));
+
+        auth.logout(token);
+        assertEquals(Optional.empty(), auth.validate(token));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package financeapp.auth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserAccountStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void accountsSurviveReopenAndIndexGrowth() {
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            for (int i = 0; i < 3000; i++) {
+                assertTrue(store.saveIfAbsent(account("user" + i, "hash" + i)));
+            }
+            assertFalse(store.saveIfAbsent(account("user7", "other")));
+        }
+
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            assertEquals("hash2999", store.find("user2999").orElseThrow().getPasswordHash());
+            assertEquals("hash7", store.find("user7").orElseThrow().getPasswordHash());
+            assertFalse(store.exists("User7"));
+        }
+    }
+
+    @Test
+    void interruptedLookupFailsInsteadOfReopeningForever() {
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            store.save(account("alice", "hash"));
+        }
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                Thread.currentThread().interrupt();
+                assertThrows(IllegalStateException.class, () -> store.find("alice"));
+                assertTrue(Thread.interrupted());
+            });
+            assertEquals("hash", store.find("alice").orElseThrow().getPasswordHash());
+        }
+    }
+
+    @Test
+    void legacyMapIsMigratedIntoTheLog() throws IOException {
+        Map<String, UserAccount> legacy = new HashMap<>();
+        legacy.put("alice", account("alice", "secret"));
+        try (ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(dir.resolve("users.dat")))) {
+            output.writeObject(legacy);
+        }
+
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            assertEquals("secret", store.find("alice").orElseThrow().getPasswordHash());
+        }
+        assertFalse(Files.exists(dir.resolve("users.dat")));
+        assertTrue(Files.exists(dir.resolve("users.log")));
+    }
+
+    @Test
+    void missingIndexAndTornTailAreRecovered() throws IOException {
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            store.save(account("bob", "first"));
+            store.save(account("bob", "second"));
+        }
+        Files.delete(dir.resolve("users.idx"));
+        Files.write(dir.resolve("users.log"), new byte[]{0, 0, 0, 9, 1}, StandardOpenOption.APPEND);
+
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            assertEquals("second", store.find("bob").orElseThrow().getPasswordHash());
+            assertTrue(store.saveIfAbsent(account("carol", "third")));
+        }
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            assertEquals("third", store.find("carol").orElseThrow().getPasswordHash());
+        }
+    }
+
+    @Test
+    void compactionDropsReplacedRecords() throws IOException {
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            store.save(account("dave", "initial"));
+            for (int i = 0; i < 1500; i++) {
+                store.save(account("eve", "hash" + i));
+            }
+            assertTrue(Files.size(dir.resolve("users.log")) < 1000 * 20L, "Log should have been compacted");
+            assertEquals("hash1499", store.find("eve").orElseThrow().getPasswordHash());
+        }
+
+        try (UserAccountStore store = new UserAccountStore(dir.resolve("users.dat"))) {
+            assertEquals("initial", store.find("dave").orElseThrow().getPasswordHash());
+            assertEquals("hash1499", store.find("eve").orElseThrow().getPasswordHash());
+        }
+    }
+
+    private static UserAccount account(String login, String hash) {
+        return new UserAccount(login, hash, LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+}
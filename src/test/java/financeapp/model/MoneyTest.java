@@ -0,0 +1,27 @@
+package financeapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void roundsToMinorUnitsHalfUp() {
+        assertEquals(1235, Money.of(new BigDecimal("12.345")).minorUnits());
+        assertEquals("12.30", Money.of(new BigDecimal("12.3")).toString());
+        assertEquals(new BigDecimal("-0.50"), Money.ofMinor(-50).toBigDecimal());
+    }
+
+    @Test
+    void overflowIsDetected() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+    }
+}
@@ -2,11 +2,22 @@ package financeapp.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WalletTest {
 
@@ -35,4 +46,175 @@ class WalletTest {
         assertNull(wallet.getBudgetFor("food"));
         assertEquals(new BigDecimal("1000"), wallet.getBudgetFor("NUTRITION"));
     }
+
+    @Test
+    void renameCategoryMergesCategoryTotals() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction("food", new BigDecimal("100"), TransactionType.EXPENSE, "",
+                LocalDateTime.now(), ""));
+        wallet.addTransaction(new Transaction("Nutrition", new BigDecimal("40"), TransactionType.EXPENSE, "",
+                LocalDateTime.now(), ""));
+        wallet.setBudget("nutrition", new BigDecimal("500"));
+
+        wallet.renameCategory("FOOD", "nutrition");
+
+        assertEquals(0, wallet.getExpensesFor("food").signum());
+        assertEquals(Money.of(new BigDecimal("140")), wallet.getExpensesFor("NUTRITION"));
+        assertEquals(new BigDecimal("500"), wallet.getBudgetFor("Nutrition"));
+    }
+
+    @Test
+    void totalsRebuiltAfterDeserialization() throws IOException, ClassNotFoundException {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction("Salary", new BigDecimal("1000.50"), TransactionType.INCOME, "",
+                LocalDateTime.now(), ""));
+        wallet.addTransaction(new Transaction("Food", new BigDecimal("200.25"), TransactionType.EXPENSE, "",
+                LocalDateTime.now(), ""));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+            outputStream.writeObject(wallet);
+        }
+        Wallet restored;
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (Wallet) inputStream.readObject();
+        }
+
+        assertEquals(Money.of(new BigDecimal("1000.50")), restored.totalByType(TransactionType.INCOME));
+        assertEquals(Money.of(new BigDecimal("200.25")), restored.totalByType(TransactionType.EXPENSE));
+        assertEquals(Money.of(new BigDecimal("800.25")), restored.getBalance());
+        assertEquals(Money.of(new BigDecimal("200.25")), restored.getExpensesFor("FOOD"));
+    }
+
+    @Test
+    void timelineKeepsOutOfOrderRowsSorted() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense("b", start.plusDays(2)));
+        wallet.addTransaction(expense("a", start));
+        wallet.addTransactions(List.of(expense("d", start.plusDays(5)), expense("c", start.plusDays(2)),
+                expense("e", start.plusDays(1))));
+
+        assertEquals(List.of("a", "e", "b", "c", "d"), categories(wallet.getTimeline()));
+        assertEquals(List.of("e", "b", "c"), categories(wallet.between(start.plusDays(1), start.plusDays(5))));
+        assertEquals(List.of("d", "c"), categories(wallet.latest(2)));
+        assertEquals(5, wallet.latest(10).size());
+    }
+
+    @Test
+    void totalsByCategoryFollowRenames() {
+        LocalDateTime now = LocalDateTime.now();
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense("Food", now));
+        wallet.addTransactions(List.of(expense("food", now), expense("Cafe", now)));
+
+        assertEquals(Money.of(new BigDecimal("1")), wallet.totalsByCategory(TransactionType.EXPENSE).get("food"));
+        assertEquals(3, wallet.totalsByCategory(TransactionType.EXPENSE).size());
+
+        wallet.renameCategory("FOOD", "Cafe");
+
+        assertEquals(Map.of("Cafe", Money.of(new BigDecimal("3"))), wallet.totalsByCategory(TransactionType.EXPENSE));
+        assertEquals(Map.of(), wallet.totalsByCategory(TransactionType.INCOME));
+    }
+
+    @Test
+    void monthlyTotalsFollowBatchesRenamesAndDeserialization() throws IOException, ClassNotFoundException {
+        LocalDateTime may = LocalDateTime.of(2024, 5, 31, 23, 0);
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense("Food", may));
+        wallet.addTransactions(List.of(expense("food", may.plusHours(2)), expense("Cafe", may)));
+        wallet.addTransaction(new Transaction("Salary", new BigDecimal("10"), TransactionType.INCOME, "", may, ""));
+        wallet.setBudget("cafe", new BigDecimal("5"));
+
+        assertEquals(Money.of(new BigDecimal("1")), wallet.getExpensesFor("FOOD", YearMonth.of(2024, 5)));
+        assertEquals(Money.of(new BigDecimal("1")), wallet.getExpensesFor("food", YearMonth.of(2024, 6)));
+        assertEquals(Money.of(new BigDecimal("2")), wallet.totalByType(TransactionType.EXPENSE, YearMonth.of(2024, 5)));
+
+        wallet.renameCategory("food", "Cafe");
+
+        assertEquals(Money.of(new BigDecimal("2")), wallet.getExpensesFor("cafe", YearMonth.of(2024, 5)));
+        assertEquals(Money.of(new BigDecimal("0")), wallet.getExpensesFor("food", YearMonth.of(2024, 5)));
+        assertEquals(Map.of("Cafe", Money.of(new BigDecimal("2"))),
+                wallet.totalsByCategory(TransactionType.EXPENSE, YearMonth.of(2024, 5)));
+        assertEquals(Money.of(new BigDecimal("4")), wallet.categoryTotals("Cafe", YearMonth.of(2024, 6)).remaining());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(wallet);
+        }
+        Wallet restored;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (Wallet) input.readObject();
+        }
+        assertEquals(Money.of(new BigDecimal("10")), restored.totalByType(TransactionType.INCOME, YearMonth.of(2024, 5)));
+        assertEquals(Money.of(new BigDecimal("1")), restored.getExpensesFor("Cafe", YearMonth.of(2024, 6)));
+    }
+
+    @Test
+    void categoryPagesFollowBatchesRenamesAndDeserialization() throws IOException, ClassNotFoundException {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Wallet wallet = new Wallet();
+        for (int day = 0; day < 20; day += 2) {
+            wallet.addTransaction(expense(day % 4 == 0 ? "Food" : "Taxi", start.plusDays(day)));
+        }
+        wallet.addTransactions(List.of(expense("food", start.plusDays(7)), expense("Cafe", start.plusDays(3)),
+                expense("FOOD", start.plusDays(1))));
+        TransactionQuery food = new TransactionQuery(start.plusDays(1), null, "Food");
+
+        assertEquals(List.of(1, 4, 7), days(wallet.page(food, 0, 3).items(), start));
+        TransactionPage second = wallet.page(food, wallet.cursorAt(food, 3), 3);
+        assertEquals(List.of(8, 12, 16), days(second.items(), start));
+        assertEquals(-1, second.nextCursor());
+
+        wallet.renameCategory("cafe", "food");
+        assertEquals(List.of(1, 3, 4), days(wallet.page(food, 0, 3).items(), start));
+        assertEquals(List.of(), wallet.page(new TransactionQuery(null, null, "cafe"), 0, 5).items());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(wallet);
+        }
+        Wallet restored;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (Wallet) input.readObject();
+        }
+        TransactionQuery taxi = new TransactionQuery(null, start.plusDays(14), "TAXI");
+        assertEquals(List.of(6, 10), days(restored.page(taxi, restored.cursorAt(taxi, 1), 5).items(), start));
+        assertEquals(List.of(3, 4, 7), days(restored.page(food, restored.cursorAt(food, 1), 3).items(), start));
+    }
+
+    @Test
+    void removedTransactionLeavesTotalsTimelineAndPages() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(expense("Food", start));
+        Transaction taxi = expense("Taxi", start.plusDays(2));
+        wallet.addTransaction(taxi);
+        wallet.addTransaction(expense("food", start.plusDays(1)));
+        int revision = wallet.getRevision();
+
+        assertTrue(wallet.removeTransaction(taxi));
+        assertFalse(wallet.removeTransaction(expense("Taxi", start.plusDays(2))));
+
+        assertEquals(revision + 1, wallet.getRevision());
+        assertEquals(List.of(0, 1), days(wallet.getTimeline(), start));
+        assertEquals(Money.of(new BigDecimal("2")), wallet.totalByType(TransactionType.EXPENSE));
+        assertEquals(Money.ZERO, wallet.getExpensesFor("taxi", YearMonth.of(2024, 3)));
+        assertEquals(List.of(), wallet.page(new TransactionQuery(null, null, "Taxi"), 0, 5).items());
+        assertFalse(wallet.hasCategory("Taxi"));
+    }
+
+    private static List<Integer> days(List<Transaction> transactions, LocalDateTime start) {
+        return transactions.stream()
+                .map(tx -> (int) Duration.between(start, tx.getTimestamp()).toDays())
+                .toList();
+    }
+
+    private static Transaction expense(String category, LocalDateTime timestamp) {
+        return new Transaction(category, new BigDecimal("1"), TransactionType.EXPENSE, "", timestamp, "");
+    }
+
+    private static List<String> categories(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getCategory).toList();
+    }
 }
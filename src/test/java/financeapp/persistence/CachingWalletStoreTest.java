@@ -0,0 +1,188 @@
+package financeapp.persistence;
+
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import financeapp.service.LoginLocks;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingWalletStoreTest {
+
+    @Test
+    void repeatedLoadsShareOneInstanceAndEvictLeastRecentlyUsed() {
+        CountingStore disk = new CountingStore();
+        CachingWalletStore cache = new CachingWalletStore(disk, 2, CachingWalletStore.Mode.WRITE_THROUGH, new LoginLocks());
+
+        Wallet alice = cache.load("alice");
+        assertSame(alice, cache.load("alice"));
+        cache.load("bob");
+        cache.load("carol");
+
+        assertEquals(3, disk.loads);
+        assertEquals(new CachingWalletStore.Stats(1, 3, 1, 2, 2), cache.stats());
+        assertNotSame(alice, cache.load("alice"));
+    }
+
+    @Test
+    void pinnedWalletSurvivesEvictionAndSeesOtherWriters() {
+        CachingWalletStore cache = new CachingWalletStore(new CountingStore(), 1, CachingWalletStore.Mode.WRITE_THROUGH, new LoginLocks());
+        cache.pin("alice");
+        Wallet session = cache.load("alice");
+
+        cache.load("bob");
+        Wallet recipient = cache.load("alice");
+        recipient.addTransaction(income());
+        cache.save("alice", recipient);
+
+        assertSame(session, recipient);
+        assertEquals(1, session.getTransactions().size());
+    }
+
+    @Test
+    void writeBackDefersSavesUntilFlushOrEviction() {
+        CountingStore disk = new CountingStore();
+        CachingWalletStore cache = new CachingWalletStore(disk, 3, CachingWalletStore.Mode.WRITE_BACK, new LoginLocks());
+        Wallet alice = cache.load("alice");
+        alice.addTransaction(income());
+        cache.save("alice", alice);
+        cache.save("alice", alice);
+        assertEquals(0, disk.saves);
+
+        cache.flush();
+        assertEquals(1, disk.saves);
+
+        alice.addTransaction(income());
+        cache.save("alice", alice);
+        cache.load("bob");
+        assertEquals(2, disk.saves);
+        assertTrue(cache.stats().evictions() > 0);
+        assertEquals(2, disk.wallets.get("alice").getTransactions().size());
+    }
+
+    @Test
+    void evictionWriteRunsOutsideTheCacheLock() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingStore disk = new CountingStore() {
+            @Override
+            public void save(String login, Wallet wallet) {
+                if (writing.getCount() > 0) {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.save(login, wallet);
+            }
+        };
+        CachingWalletStore cache = new CachingWalletStore(disk, 2, CachingWalletStore.Mode.WRITE_BACK, new LoginLocks());
+        Wallet alice = cache.load("alice");
+        alice.addTransaction(income());
+        cache.save("alice", alice);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Wallet> evicting = executor.submit(() -> cache.load("bob"));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertEquals(2, cache.stats().misses());
+                assertSame(alice, cache.load("alice"), "A wallet being written is reused, not re-read");
+            });
+            assertEquals(2, disk.loads);
+
+            release.countDown();
+            evicting.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        alice.addTransaction(income());
+        cache.save("alice", alice);
+        cache.flush();
+        assertEquals(2, disk.wallets.get("alice").getTransactions().size());
+    }
+
+    @Test
+    void evictionLeavesAWalletCachedWhileItsLoginIsLocked() throws Exception {
+        CountingStore disk = new CountingStore();
+        LoginLocks locks = new LoginLocks();
+        CachingWalletStore cache = new CachingWalletStore(disk, 2, CachingWalletStore.Mode.WRITE_BACK, locks);
+        Wallet alice = cache.load("alice");
+        alice.addTransaction(income());
+        cache.save("alice", alice);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> command = executor.submit(() -> locks.run("alice", () -> {
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(held.await(5, TimeUnit.SECONDS));
+
+            cache.load("bob");
+            assertEquals(0, disk.saves, "A locked wallet is not written behind its command's back");
+            assertSame(alice, cache.load("alice"));
+
+            release.countDown();
+            command.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        cache.flush();
+        assertEquals(1, disk.wallets.get("alice").getTransactions().size());
+    }
+
+    private static Transaction income() {
+        return new Transaction("Salary", new BigDecimal("10"), TransactionType.INCOME, "", LocalDateTime.now(), "");
+    }
+
+    private static class CountingStore implements WalletStore {
+        private final Map<String, Wallet> wallets = new HashMap<>();
+        private int loads;
+        private int saves;
+
+        @Override
+        public Wallet load(String login) {
+            loads++;
+            Wallet stored = wallets.get(login);
+            Wallet copy = new Wallet();
+            if (stored != null) {
+                copy.addTransactions(stored.getTransactions());
+            }
+            return copy;
+        }
+
+        @Override
+        public void save(String login, Wallet wallet) {
+            saves++;
+            wallets.put(login, wallet);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package financeapp.persistence;
+
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarWalletStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripPreservesTransactionsAndBudgets() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 15, 10, 30, 5, 123_000_000);
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction("Еда", new BigDecimal("12.50"), TransactionType.EXPENSE,
+                "обед", timestamp, ""));
+        wallet.addTransaction(new Transaction("Gift", 10_000, TransactionType.TRANSFER_IN,
+                "Перевод от пользователя bob", timestamp.plusDays(1), "bob", 7L));
+        wallet.setBudget("Еда", new BigDecimal("3000.00"));
+
+        new ColumnarWalletStore(dir).save("alice", wallet);
+        Wallet restored = new ColumnarWalletStore(dir).load("alice");
+
+        assertEquals(2, restored.getTransactions().size());
+        Transaction first = restored.getTransactions().get(0);
+        assertEquals("Еда", first.getCategory());
+        assertEquals(new BigDecimal("12.50"), first.getAmount());
+        assertEquals(timestamp, first.getTimestamp());
+        assertEquals("обед", first.getNote());
+        Transaction second = restored.getTransactions().get(1);
+        assertEquals(TransactionType.TRANSFER_IN, second.getType());
+        assertEquals("bob", second.getCounterparty());
+        assertEquals(7L, second.getTransferId());
+        assertEquals(0L, first.getTransferId());
+        assertEquals(new BigDecimal("3000.00"), restored.getBudgetFor("еда"));
+        assertEquals(Money.of(new BigDecimal("87.50")), restored.getBalance());
+    }
+
+    @Test
+    void legacyWalletsConvertedWhenTheStoreOpens() {
+        Wallet legacy = new Wallet();
+        legacy.addTransaction(new Transaction("Salary", new BigDecimal("500.00"), TransactionType.INCOME,
+                "", LocalDateTime.now(), ""));
+        new FileWalletStore(dir).save("carol", legacy);
+
+        ColumnarWalletStore store = new ColumnarWalletStore(dir);
+        assertTrue(Files.exists(new WalletFileLayout(dir).file("carol", "-wallet.fwal")));
+        assertEquals(0, WalletFileConverter.convertDirectory(dir));
+
+        assertEquals(Money.of(new BigDecimal("500.00")), store.load("carol").getBalance());
+        assertEquals(0, store.load("nobody").getTransactions().size());
+    }
+}
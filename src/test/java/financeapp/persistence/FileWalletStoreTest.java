@@ -0,0 +1,78 @@
+package financeapp.persistence;
+
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileWalletStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void flatWalletFilesMoveIntoShards() throws IOException {
+        Wallet legacy = walletWith("250");
+        try (ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(dir.resolve("dave-wallet.dat")))) {
+            output.writeObject(legacy);
+        }
+
+        FileWalletStore store = new FileWalletStore(dir);
+
+        assertFalse(Files.exists(dir.resolve("dave-wallet.dat")));
+        Path sharded = dir.resolve(WalletFileLayout.shard("dave")).resolve("dave-wallet.dat");
+        assertTrue(Files.exists(sharded));
+        assertEquals(Money.of(new BigDecimal("250")), store.load("dave").getBalance());
+    }
+
+    @Test
+    void differentLoginsSaveConcurrently() throws Exception {
+        FileWalletStore store = new FileWalletStore(dir);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> saves = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String login = "user" + i;
+                saves.add(executor.submit(() -> store.save(login, walletWith("10"))));
+            }
+            for (Future<?> save : saves) {
+                save.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < 40; i++) {
+            assertEquals(1, store.load("user" + i).getTransactions().size());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.allMatch(Files::isDirectory), "Only shard directories belong in the root");
+        }
+    }
+
+    private static Wallet walletWith(String income) {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction("Salary", new BigDecimal(income), TransactionType.INCOME, "",
+                LocalDateTime.now(), ""));
+        return wallet;
+    }
+}
@@ -2,11 +2,11 @@ package financeapp.persistence;
 
 import financeapp.model.Wallet;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InMemoryWalletStore implements WalletStore {
-    private final Map<String, Wallet> storage = new HashMap<>();
+    private final Map<String, Wallet> storage = new ConcurrentHashMap<>();
 
     @Override
     public Wallet load(String login) {
@@ -0,0 +1,118 @@
+package financeapp.persistence;
+
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalingWalletStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsChangesWithoutRewritingSnapshot() throws IOException {
+        JournalingWalletStore store = new JournalingWalletStore(dir);
+        Wallet wallet = store.load("alice");
+        wallet.addTransaction(expense("Food", "100"));
+        store.save("alice", wallet);
+        long snapshotSize = Files.size(new WalletFileLayout(dir).file("alice", "-wallet.dat"));
+
+        wallet.addTransaction(expense("Food", "25.50"));
+        wallet.setBudget("food", new BigDecimal("500"));
+        store.save("alice", wallet);
+
+        assertEquals(snapshotSize, Files.size(new WalletFileLayout(dir).file("alice", "-wallet.dat")));
+        Wallet restored = new JournalingWalletStore(dir).load("alice");
+        assertEquals(2, restored.getTransactions().size());
+        assertEquals(Money.of(new BigDecimal("125.50")), restored.totalByType(TransactionType.EXPENSE));
+        assertEquals(new BigDecimal("500"), restored.getBudgetFor("Food"));
+    }
+
+    @Test
+    void compactsWhenThresholdReached() throws IOException {
+        JournalingWalletStore store = new JournalingWalletStore(dir, 2);
+        Wallet wallet = store.load("bob");
+        store.save("bob", wallet);
+        for (int i = 0; i < 3; i++) {
+            wallet.addTransaction(expense("Taxi", "10"));
+            store.save("bob", wallet);
+        }
+
+        assertTrue(Files.size(new WalletFileLayout(dir).file("bob", "-wallet.journal")) < 64, "Journal should be truncated by compaction");
+        assertEquals(3, new JournalingWalletStore(dir).load("bob").getTransactions().size());
+    }
+
+    @Test
+    void renameForcesSnapshot() {
+        JournalingWalletStore store = new JournalingWalletStore(dir);
+        Wallet wallet = store.load("carol");
+        wallet.addTransaction(expense("food", "40"));
+        store.save("carol", wallet);
+
+        wallet.renameCategory("food", "nutrition");
+        store.save("carol", wallet);
+
+        Wallet restored = new JournalingWalletStore(dir).load("carol");
+        assertEquals("nutrition", restored.getTransactions().get(0).getCategory());
+    }
+
+    @Test
+    void journalHoldsStringsLongerThan64Kb() {
+        JournalingWalletStore store = new JournalingWalletStore(dir);
+        Wallet wallet = store.load("dave");
+        store.save("dave", wallet);
+        String note = "заметка ".repeat(10_000);
+        wallet.addTransaction(new Transaction("Food", new BigDecimal("5"), TransactionType.EXPENSE, note,
+                LocalDateTime.now(), ""));
+        store.save("dave", wallet);
+
+        assertEquals(note, new JournalingWalletStore(dir).load("dave").getTransactions().get(0).getNote());
+    }
+
+    @Test
+    void versionOneJournalIsReplayedThenCompacted() throws IOException {
+        JournalingWalletStore store = new JournalingWalletStore(dir);
+        store.save("erin", store.load("erin"));
+        Path journal = new WalletFileLayout(dir).file("erin", "-wallet.journal");
+        long snapshotCrc = ByteBuffer.wrap(Files.readAllBytes(journal)).getLong(Integer.BYTES);
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(legacy)) {
+            output.writeInt(0x464A4E31);
+            output.writeLong(snapshotCrc);
+            output.writeByte(2);
+            output.writeUTF("food");
+            output.writeUTF("300");
+        }
+        Files.write(journal, legacy.toByteArray());
+
+        JournalingWalletStore reopened = new JournalingWalletStore(dir);
+        Wallet wallet = reopened.load("erin");
+        assertEquals(new BigDecimal("300"), wallet.getBudgetFor("food"));
+        wallet.addTransaction(expense("food", "12"));
+        reopened.save("erin", wallet);
+
+        assertEquals(0x464A4E32, ByteBuffer.wrap(Files.readAllBytes(journal)).getInt());
+        Wallet restored = new JournalingWalletStore(dir).load("erin");
+        assertEquals(new BigDecimal("300"), restored.getBudgetFor("food"));
+        assertEquals(1, restored.getTransactions().size());
+    }
+
+    private static Transaction expense(String category, String amount) {
+        return new Transaction(category, new BigDecimal(amount), TransactionType.EXPENSE, "", LocalDateTime.now(), "");
+    }
+}
@@ -0,0 +1,105 @@
+package financeapp.service;
+
+import financeapp.model.Transaction;
+import financeapp.model.TransactionType;
+import financeapp.model.Wallet;
+import financeapp.persistence.InMemoryWalletStore;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BudgetAlertEngineTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 20, 12, 0);
+
+    private final WalletService walletService = new WalletService(new InMemoryWalletStore());
+    private final BudgetAlertEngine engine = new BudgetAlertEngine(walletService,
+            Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+    @Test
+    void eachCrossingIsPublishedOnce() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(income("Salary", "100", NOW));
+        wallet.setBudget("food", new BigDecimal("50"));
+        BudgetAlertEngine.Subscription alerts = engine.attach(wallet);
+
+        wallet.addTransaction(expense("Food", "30", NOW));
+        assertTrue(alerts.drain().isEmpty());
+        wallet.addTransaction(expense("FOOD", "12", NOW));
+        wallet.addTransaction(expense("food", "1", NOW));
+        assertEquals(List.of("Предупреждение: категория 'food' израсходована на 84%, остаток 8.00"),
+                messages(alerts.drain()));
+
+        wallet.addTransaction(expense("food", "10", NOW));
+        wallet.addTransaction(expense("food", "10", NOW));
+        assertEquals(List.of(BudgetAlert.Kind.BUDGET_EXCEEDED), kinds(alerts.drain()));
+
+        wallet.addTransactions(List.of(expense("Rent", "30", NOW), expense("Rent", "20", NOW)));
+        assertEquals(List.of(BudgetAlert.Kind.EXPENSES_EXCEED_INCOME, BudgetAlert.Kind.NON_POSITIVE_BALANCE),
+                kinds(alerts.drain()));
+        wallet.addTransaction(expense("Rent", "5", NOW));
+        assertTrue(alerts.drain().isEmpty());
+
+        alerts.close();
+        wallet.setBudget("food", new BigDecimal("1"));
+        assertTrue(alerts.drain().isEmpty());
+    }
+
+    @Test
+    void clearedConditionsFireAgainAndOldRowsAreIgnored() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(income("Salary", "1000", NOW));
+        wallet.setBudget("Cafe", new BigDecimal("100"));
+        wallet.addTransaction(expense("Cafe", "90", NOW));
+        BudgetAlertEngine.Subscription alerts = engine.attach(wallet);
+
+        wallet.addTransaction(expense("Cafe", "500", NOW.minusMonths(1)));
+        wallet.addTransaction(expense("Cafe", "5", NOW));
+        assertTrue(alerts.drain().isEmpty(), "Baseline and last month's rows are not reported");
+
+        wallet.setBudget("cafe", new BigDecimal("200"));
+        wallet.setBudget("cafe", new BigDecimal("50"));
+        assertEquals(List.of(BudgetAlert.Kind.BUDGET_EXCEEDED), kinds(alerts.drain()));
+
+        wallet.setBudget("Lunch", new BigDecimal("30"));
+        wallet.addTransaction(expense("Lunch", "20", NOW));
+        assertTrue(alerts.drain().isEmpty());
+        wallet.renameCategory("Cafe", "Lunch");
+        assertEquals(List.of("Превышен бюджет по категории: Lunch. Перерасход: 35.00"), messages(alerts.drain()));
+    }
+
+    @Test
+    void outgoingTransfersCrossBudgetsLikeExpenses() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(income("Salary", "1000", NOW));
+        wallet.setBudget("Gifts", new BigDecimal("100"));
+        BudgetAlertEngine.Subscription alerts = engine.attach(wallet);
+
+        wallet.addTransaction(walletService.transferOut("gifts", new BigDecimal("85"), "bob", NOW, 0));
+        assertEquals(List.of(BudgetAlert.Kind.BUDGET_THRESHOLD), kinds(alerts.drain()));
+        wallet.addTransaction(walletService.transferOut("Gifts", new BigDecimal("30"), "bob", NOW, 0));
+        assertEquals(List.of("Превышен бюджет по категории: Gifts. Перерасход: 15.00"), messages(alerts.drain()));
+    }
+
+    private static List<String> messages(List<BudgetAlert> alerts) {
+        return alerts.stream().map(BudgetAlert::message).toList();
+    }
+
+    private static List<BudgetAlert.Kind> kinds(List<BudgetAlert> alerts) {
+        return alerts.stream().map(BudgetAlert::kind).toList();
+    }
+
+    private static Transaction income(String category, String amount, LocalDateTime timestamp) {
+        return new Transaction(category, new BigDecimal(amount), TransactionType.INCOME, "", timestamp, "");
+    }
+
+    private static Transaction expense(String category, String amount, LocalDateTime timestamp) {
+        return new Transaction(category, new BigDecimal(amount), TransactionType.EXPENSE, "", timestamp, "");
+    }
+}
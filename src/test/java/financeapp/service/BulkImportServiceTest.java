@@ -0,0 +1,45 @@
+package financeapp.service;
+
+import financeapp.model.Money;
+import financeapp.persistence.InMemoryWalletStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BulkImportServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importsEveryLoginAndReportsErrors() throws IOException {
+        InMemoryWalletStore store = new InMemoryWalletStore();
+        WalletService walletService = new WalletService(store);
+        BulkImportService service = new BulkImportService(walletService, new TransactionImportService(walletService), 3);
+        Files.writeString(dir.resolve("alice.csv"), "INCOME,Salary,1000\nEXPENSE,Food,200\n");
+        Files.writeString(dir.resolve("bob.csv"), "EXPENSE,Taxi,50\nUNKNOWN,Food,1\n");
+        Files.writeString(dir.resolve("carol.csv"), "INCOME,Gift,10\n");
+        Files.writeString(dir.resolve("notes.txt"), "ignored");
+
+        BulkImportReport report = service.importDirectory(dir, login -> !login.equals("carol"));
+
+        assertEquals(3, report.entries().size());
+        BulkImportReport.Entry alice = report.entries().get(0);
+        assertEquals(2, alice.imported());
+        assertNull(alice.error());
+        assertNotNull(report.entries().get(1).error());
+        assertEquals(1, report.entries().get(1).imported());
+        assertEquals(0, report.entries().get(2).imported());
+        assertEquals(Money.of(new BigDecimal("800.00")), store.load("alice").getBalance());
+        assertEquals(Money.of(new BigDecimal("-50.00")), store.load("bob").getBalance());
+        assertEquals(0, store.load("carol").getTransactions().size());
+    }
+}
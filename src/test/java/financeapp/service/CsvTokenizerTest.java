@@ -0,0 +1,51 @@
+package financeapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvTokenizerTest {
+
+    private final CsvTokenizer tokenizer = new CsvTokenizer();
+
+    @Test
+    void splitsQuotedAndTrimmedFields() {
+        char[] line = "expense ; \"Food, drinks\" ;\"12,50\"; lunch ".toCharArray();
+
+        assertEquals(4, tokenizer.tokenize(line, 0, line.length));
+        assertTrue(tokenizer.fieldEqualsIgnoreCase(0, "EXPENSE"));
+        assertEquals("Food, drinks", tokenizer.field(1));
+        assertEquals(1250, tokenizer.fieldCents(2));
+        assertEquals("lunch", tokenizer.field(3));
+    }
+
+    @Test
+    void parsesAmountsIntoCents() {
+        assertEquals(100000, cents("1000"));
+        assertEquals(150, cents("1.5"));
+        assertEquals(1235, cents("12.345"));
+        assertEquals(1234, cents("+12.344"));
+        assertEquals(-1, cents("abc"));
+        assertEquals(-1, cents("1.2.3"));
+        assertEquals(-1, cents("-5"));
+        assertEquals(-1, cents("99999999999999999999"));
+    }
+
+    @Test
+    void repeatedCategoriesShareInstance() {
+        char[] first = "EXPENSE,Food,1".toCharArray();
+        tokenizer.tokenize(first, 0, first.length);
+        String category = tokenizer.cachedField(1);
+        char[] second = "INCOME,Food,2".toCharArray();
+        tokenizer.tokenize(second, 0, second.length);
+
+        assertSame(category, tokenizer.cachedField(1));
+    }
+
+    private long cents(String value) {
+        char[] chars = value.toCharArray();
+        return CsvTokenizer.parseCents(chars, 0, chars.length);
+    }
+}
@@ -3,41 +3,39 @@ package financeapp.service;
 import financeapp.model.Transaction;
 import financeapp.model.TransactionType;
 import financeapp.model.Wallet;
-import financeapp.persistence.WalletStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FinanceReportServiceTest {
 
     private FinanceReportService service;
     private Wallet wallet;
-    private WalletService walletService;
 
     @BeforeEach
     void setUp() {
         service = new FinanceReportService();
         wallet = new Wallet();
-        walletService = new WalletService(new WalletStore() {
-            @Override
-            public Wallet load(String login) {
-                return wallet;
-            }
-
-            @Override
-            public void save(String login, Wallet wallet) {
-                // no-op for tests
-            }
-        });
     }
 
     @Test
     void categoryBreakdownWarnsWhenMissing() {
-        String report = service.categoryBreakdown(wallet, walletService, new String[]{"Food"});
+        String report = service.categoryBreakdown(wallet, new String[]{"Food"});
         assertTrue(report.contains("Категория не найдена"), "Should warn when category missing");
     }
 
@@ -47,10 +45,50 @@ class FinanceReportServiceTest {
                 TransactionType.EXPENSE, "", LocalDateTime.now(), ""));
         wallet.setBudget("Food", new BigDecimal("1000"));
 
-        String report = service.categoryBreakdown(wallet, walletService, new String[]{"Food"});
+        String report = service.categoryBreakdown(wallet, new String[]{"Food"});
 
         assertTrue(report.contains("Бюджет: 1000"), "Budget information is missing");
         assertTrue(report.contains("Расходы: 200.00"), "Expense information is missing");
     }
-}
 
+    @Test
+    void summaryShowsTotalsBudgetsAndRecentOperations() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 10, 9, 30);
+        wallet.addTransaction(new Transaction("Salary", new BigDecimal("1000"),
+                TransactionType.INCOME, "", now, ""));
+        wallet.addTransaction(new Transaction("Food", new BigDecimal("150"),
+                TransactionType.EXPENSE, "lunch", now.plusHours(1), ""));
+        wallet.addTransaction(new Transaction("Food", new BigDecimal("50"),
+                TransactionType.EXPENSE, "", now.plusHours(2), ""));
+        wallet.setBudget("food", new BigDecimal("300"));
+
+        String report = service.buildSummary("alice", wallet, YearMonth.of(2024, 5));
+
+        assertTrue(report.contains("Баланс: 800.00"), "Balance is missing");
+        assertTrue(report.contains("Food: 200.00"), "Expense by category is missing");
+        assertTrue(report.contains("food: 300, Остаток: 100.00"), "Budget remaining is missing");
+        assertTrue(report.indexOf("10.05.2024 11:30") < report.indexOf("10.05.2024 10:30"),
+                "Recent operations should be newest first");
+    }
+
+    @Test
+    void statementExportWritesEveryTransactionCompressed(@TempDir Path dir) throws IOException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 20; i++) {
+            wallet.addTransaction(new Transaction("Food", new BigDecimal("1.50"),
+                    TransactionType.EXPENSE, "n" + i, start.plusMinutes(20 - i), ""));
+        }
+        Path file = dir.resolve("reports/statement.txt.gz");
+
+        service.exportStatement(file, "alice", wallet);
+
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            lines = reader.lines().toList();
+        }
+        assertEquals(23, lines.size());
+        assertEquals("01.01.2024 00:01 | EXPENSE | Food | 1.50 | n19", lines.get(3));
+        assertEquals("01.01.2024 00:20 | EXPENSE | Food | 1.50 | n0", lines.get(22));
+    }
+}
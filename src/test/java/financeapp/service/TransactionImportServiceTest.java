@@ -1,5 +1,6 @@
 package financeapp.service;
 
+import financeapp.model.Money;
 import financeapp.model.Wallet;
 import financeapp.persistence.InMemoryWalletStore;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,9 +10,11 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TransactionImportServiceTest {
 
@@ -38,7 +41,7 @@ class TransactionImportServiceTest {
         int imported = importService.importFromCsv(wallet, file);
 
         assertEquals(2, imported);
-        assertEquals(new BigDecimal("750.00"), wallet.getBalance());
+        assertEquals(Money.of(new BigDecimal("750.00")), wallet.getBalance());
     }
 
     @Test
@@ -59,4 +62,69 @@ class TransactionImportServiceTest {
         assertThrows(IllegalArgumentException.class, () ->
                 importService.importFromCsv(wallet, file));
     }
+
+    @Test
+    void largeFileImportedInBatchesKeepsRowsBeforeError() throws IOException {
+        int rows = TransactionImportService.BATCH_SIZE * 2 + 10;
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            content.append("EXPENSE,Food,1.00\n");
+        }
+        content.append("EXPENSE,Food,abc\n");
+        Path file = Files.createTempFile("transactions", ".csv");
+        Files.writeString(file, content);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () ->
+                importService.importFromCsv(wallet, file));
+
+        assertTrue(error.getMessage().startsWith("Строка " + (rows + 1) + ":"), error.getMessage());
+        assertEquals(rows, wallet.getTransactions().size());
+        assertEquals(Money.of(new BigDecimal(rows + ".00")), walletService.expensesForCategory(wallet, "food"));
+    }
+
+    @Test
+    void parallelImportKeepsFileOrderAndLineNumbers() throws IOException {
+        StringBuilder content = new StringBuilder("type;category;amount;note\r\n");
+        for (int i = 1; i <= 300; i++) {
+            content.append(i % 3 == 0 ? "INCOME" : "EXPENSE").append(";cat").append(i).append(";").append(i).append(".50\r\n");
+        }
+        content.append("EXPENSE;Broken;-1\r\n");
+        content.append("EXPENSE;After;1\r\n");
+        Path file = Files.createTempFile("transactions", ".csv");
+        Files.writeString(file, content);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        IllegalArgumentException error;
+        try {
+            error = assertThrows(IllegalArgumentException.class, () ->
+                    importService.importParallel(wallet, file, 256, pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(error.getMessage().startsWith("Строка 302:"), error.getMessage());
+        assertEquals(300, wallet.getTransactions().size());
+        for (int i = 0; i < 300; i++) {
+            assertEquals("cat" + (i + 1), wallet.getTransactions().get(i).getCategory());
+        }
+    }
+
+    @Test
+    void reportsWhatEachImportAllocatedOnItsOwnThreads() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 2_000; i++) {
+            content.append("EXPENSE;cat").append(i % 7).append(";").append(i).append(".25\n");
+        }
+        Path file = Files.createTempFile("transactions", ".csv");
+        Files.writeString(file, content);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ImportReport sequential = importService.importWithReport(wallet, file);
+            ImportReport parallel = importService.importParallel(wallet, file, 4096, pool);
+
+            assertTrue(sequential.allocatedBytes() > 0, String.valueOf(sequential));
+            assertTrue(parallel.allocatedBytes() > 0, String.valueOf(parallel));
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -1,14 +1,34 @@
 package financeapp.service;
 
+import financeapp.model.Money;
+import financeapp.model.Transaction;
 import financeapp.model.Wallet;
 import financeapp.persistence.InMemoryWalletStore;
+import financeapp.persistence.JournalingWalletStore;
+import financeapp.persistence.TransferLog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TransferServiceTest {
 
@@ -38,8 +58,215 @@ class TransferServiceTest {
         transferService.transfer("alice", sender, "bob", new BigDecimal("50"), "Gift");
 
         Wallet recipient = store.load("bob");
-        assertEquals(new BigDecimal("50.00"), walletService.totalIncome(recipient));
-        assertEquals(new BigDecimal("50.00"), walletService.totalExpense(sender));
+        assertEquals(Money.of(new BigDecimal("50.00")), walletService.totalIncome(recipient));
+        assertEquals(Money.of(new BigDecimal("50.00")), walletService.totalExpense(sender));
+    }
+
+    @Test
+    void failedRecipientSaveLeavesBothWalletsUnchanged(@TempDir Path dir) {
+        assertFailedTransferChangesNothing(dir, "bob");
+    }
+
+    @Test
+    void failedSenderSaveTakesBackTheSavedRecipientSide(@TempDir Path dir) {
+        assertFailedTransferChangesNothing(dir, "alice");
+    }
+
+    @Test
+    void overflowOnTheRecipientSideIsCaughtBeforeEitherWalletChanges() {
+        Wallet sender = walletService.loadWallet("alice");
+        walletService.addIncome(sender, "Salary", new BigDecimal("100"), "");
+        Wallet recipient = walletService.loadWallet("bob");
+        walletService.addIncome(recipient, "Gift", BigDecimal.valueOf(Long.MAX_VALUE, 2), "");
+
+        assertThrows(ArithmeticException.class, () ->
+                transferService.transfer("alice", sender, "bob", new BigDecimal("1"), "gift"));
+
+        assertEquals(1, sender.getTransactions().size());
+        assertEquals(1, recipient.getTransactions().size());
+    }
+
+    @Test
+    void recoverReplaysWhatACrashKeptOffDiskByTransferId(@TempDir Path dir) {
+        WalletService beforeCrash = new WalletService(new JournalingWalletStore(dir.resolve("wallets")));
+        TransferLog log = new TransferLog(dir.resolve("transfers"));
+        Wallet sender = beforeCrash.loadWallet("alice");
+        beforeCrash.addIncome(sender, "Salary", new BigDecimal("100"), "");
+        LocalDateTime timestamp = LocalDateTime.now();
+        Transaction out = beforeCrash.transferOut("Gift", new BigDecimal("40"), "bob", timestamp, 42);
+        log.append(42, "alice", "bob", out.getCategory(), out.getAmountMinor(), timestamp);
+        sender.addTransaction(out);
+        beforeCrash.saveDurably("alice", sender);
+        log.close();
+
+        TransferLog reopened = new TransferLog(dir.resolve("transfers"));
+        assertEquals(1, reopened.recovered().size());
+        WalletService restarted = new WalletService(new JournalingWalletStore(dir.resolve("wallets")));
+        new TransferService(restarted, reopened, Runnable::run).recover();
+        reopened.close();
+
+        JournalingWalletStore stored = new JournalingWalletStore(dir.resolve("wallets"));
+        assertEquals(2, stored.load("alice").getTransactions().size(), "The saved side is not applied twice");
+        assertEquals(Money.of(new BigDecimal("60")), stored.load("alice").getBalance());
+        Wallet recipient = stored.load("bob");
+        assertEquals(Money.of(new BigDecimal("40")), recipient.getBalance());
+        assertEquals(42, recipient.getTransactions().get(0).getTransferId());
+        assertTrue(new TransferLog(dir.resolve("transfers")).recovered().isEmpty());
+    }
+
+    @Test
+    void fullSegmentsAreCheckpointedAndReleased(@TempDir Path dir) throws Exception {
+        // Write-behind never fires here, so only checkpoints reach the wallet files.
+        JournalingWalletStore files = new JournalingWalletStore(dir.resolve("wallets"));
+        LoginLocks locks = new LoginLocks();
+        WalletService service = new WalletService(files, locks,
+                new WriteBehindSaver(files, locks, Duration.ofHours(1), WriteBehindSaver.Fsync.BATCH));
+        TransferLog log = new TransferLog(dir.resolve("transfers"), 2);
+        TransferService transfers = new TransferService(service, log, Runnable::run);
+        Wallet sender = service.loadWallet("alice");
+        for (int i = 0; i < 3; i++) {
+            transfers.transfer("alice", sender, "bob", new BigDecimal("5"), "Gift");
+        }
+        assertEquals(List.of("2.log"), segmentFiles(dir.resolve("transfers")));
+        log.close();
+
+        Wallet recipient = new JournalingWalletStore(dir.resolve("wallets")).load("bob");
+        assertEquals(2, recipient.getTransactions().size(), "Checkpointed transfers are synced to the wallet files");
+        assertEquals(recipient.getTransactions().get(0).getTransferId(),
+                sender.getTransactions().get(0).getTransferId());
+        TransferLog reopened = new TransferLog(dir.resolve("transfers"));
+        assertEquals(1, reopened.recovered().size());
+        WalletService restarted = new WalletService(new JournalingWalletStore(dir.resolve("wallets")));
+        new TransferService(restarted, reopened, Runnable::run).recover();
+        assertEquals(3, restarted.loadWallet("bob").getTransactions().size());
+        assertEquals(3, restarted.loadWallet("alice").getTransactions().size());
+        assertEquals(List.of("3.log"), segmentFiles(dir.resolve("transfers")));
+    }
+
+    @Test
+    void concurrentTransfersConserveMoney() throws Exception {
+        assertConcurrentTransfersConserveMoney(transferService, 8, 2_000);
+    }
+
+    @Test
+    void concurrentLoggedTransfersConserveMoney(@TempDir Path dir) throws Exception {
+        TransferLog log = new TransferLog(dir.resolve("transfers"), 64);
+        assertConcurrentTransfersConserveMoney(new TransferService(walletService, log, Runnable::run), 4, 100);
+        log.close();
+
+        TransferLog reopened = new TransferLog(dir.resolve("transfers"));
+        assertTrue(reopened.recovered().size() < 4 * 100, "Full segments were released");
+        new TransferService(walletService, reopened, Runnable::run).recover();
+        for (int i = 0; i < 6; i++) {
+            Wallet wallet = store.load("user" + i);
+            assertEquals(wallet.getTransactions().size(), transferIds(wallet).size() + 1, "Replay adds nothing twice");
+        }
+    }
+
+    private static Set<Long> transferIds(Wallet wallet) {
+        Set<Long> ids = new HashSet<>();
+        wallet.getTransactions().forEach(tx -> ids.add(tx.getTransferId()));
+        ids.remove(0L);
+        return ids;
+    }
+
+    private void assertConcurrentTransfersConserveMoney(TransferService transfers, int threads, int transfersPerThread)
+            throws Exception {
+        int users = 6;
+        for (int i = 0; i < users; i++) {
+            walletService.addIncome(walletService.loadWallet("user" + i), "Salary", new BigDecimal("1000"), "");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = random.nextInt(users);
+                    int to = (from + 1 + random.nextInt(users - 1)) % users;
+                    String sender = "user" + from;
+                    transfers.transfer(sender, walletService.loadWallet(sender), "user" + to,
+                            new BigDecimal(random.nextInt(1, 500)).movePointLeft(2), "Stress");
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        Money total = Money.ZERO;
+        int transactions = 0;
+        for (int i = 0; i < users; i++) {
+            Wallet wallet = store.load("user" + i);
+            total = total.plus(wallet.getBalance());
+            transactions += wallet.getTransactions().size();
+            assertEquals(wallet.getTransactions().size(), wallet.getTimeline().size());
+        }
+        assertEquals(Money.of(new BigDecimal("6000")), total);
+        assertEquals(users + 2 * threads * transfersPerThread, transactions);
     }
-}
 
+    // The store fails the next save of failingLogin once, so the rollback itself can be written.
+    private static void assertFailedTransferChangesNothing(Path dir, String failingLogin) {
+        FailingStore failing = new FailingStore();
+        WalletService service = new WalletService(failing);
+        TransferLog log = new TransferLog(dir.resolve("transfers"));
+        TransferService transfers = new TransferService(service, log, Runnable::run);
+        Wallet sender = service.loadWallet("alice");
+        service.addIncome(sender, "Salary", new BigDecimal("100"), "");
+        service.saveWallet("alice", sender);
+        Wallet recipient = service.loadWallet("bob");
+        service.addIncome(recipient, "Salary", new BigDecimal("10"), "");
+        service.saveWallet("bob", recipient);
+
+        failing.failNextSave(failingLogin);
+        assertThrows(IllegalStateException.class, () ->
+                transfers.transfer("alice", sender, "bob", new BigDecimal("40"), "Gift"));
+
+        for (Wallet wallet : List.of(sender, recipient, failing.load("alice"), failing.load("bob"))) {
+            assertEquals(1, wallet.getTransactions().size());
+            assertEquals(0, wallet.getTimeline().stream().filter(tx -> tx.getCategory().equals("Gift")).count());
+        }
+        assertEquals(Money.of(new BigDecimal("100")), sender.getBalance());
+        assertEquals(Money.of(new BigDecimal("10")), recipient.getBalance());
+        log.close();
+        assertTrue(new TransferLog(dir.resolve("transfers")).recovered().isEmpty(), "The transfer is aborted");
+    }
+
+    private static List<String> segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    // Keeps the last successfully saved copy of each wallet, like a store writing files would.
+    private static final class FailingStore extends InMemoryWalletStore {
+        private volatile String failNext;
+
+        void failNextSave(String login) {
+            failNext = login;
+        }
+
+        @Override
+        public Wallet load(String login) {
+            Wallet stored = super.load(login);
+            Wallet copy = new Wallet();
+            stored.getTransactions().forEach(copy::addTransaction);
+            return copy;
+        }
+
+        @Override
+        public void save(String login, Wallet wallet) {
+            if (login.equals(failNext)) {
+                failNext = null;
+                throw new IllegalStateException("Unable to persist wallet for " + login);
+            }
+            Wallet copy = new Wallet();
+            wallet.getTransactions().forEach(copy::addTransaction);
+            super.save(login, copy);
+        }
+    }
+}
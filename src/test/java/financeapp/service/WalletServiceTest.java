@@ -1,13 +1,24 @@
 package financeapp.service;
 
+import financeapp.model.Money;
+import financeapp.model.Transaction;
+import financeapp.model.TransactionPage;
+import financeapp.model.TransactionQuery;
+import financeapp.model.TransactionType;
 import financeapp.model.Wallet;
 import financeapp.persistence.InMemoryWalletStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WalletServiceTest {
 
@@ -25,8 +36,8 @@ class WalletServiceTest {
         service.addIncome(wallet, "Salary", new BigDecimal("1000.50"), "First part");
         service.addIncome(wallet, "Bonus", new BigDecimal("500"), "Bonus");
 
-        BigDecimal total = service.totalIncome(wallet);
-        assertEquals(new BigDecimal("1500.50"), total);
+        Money total = service.totalIncome(wallet);
+        assertEquals(Money.of(new BigDecimal("1500.50")), total);
     }
 
     @Test
@@ -34,8 +45,8 @@ class WalletServiceTest {
         service.addExpense(wallet, "Food", new BigDecimal("200.25"), "Lunch");
         service.addExpense(wallet, "Food", new BigDecimal("100.75"), "Dinner");
 
-        BigDecimal total = service.totalExpense(wallet);
-        assertEquals(new BigDecimal("301.00"), total);
+        Money total = service.totalExpense(wallet);
+        assertEquals(Money.of(new BigDecimal("301.00")), total);
     }
 
     @Test
@@ -51,8 +62,8 @@ class WalletServiceTest {
         service.setBudget(wallet, "Food", new BigDecimal("1000"));
         service.addExpense(wallet, "Food", new BigDecimal("400"), "Lunch");
 
-        BigDecimal remaining = service.remainingBudget(wallet, "Food");
-        assertEquals(new BigDecimal("600.00"), remaining);
+        Money remaining = service.remainingBudget(wallet, "Food");
+        assertEquals(Money.of(new BigDecimal("600.00")), remaining);
     }
 
     @Test
@@ -60,8 +71,42 @@ class WalletServiceTest {
         service.addExpense(wallet, "Food", new BigDecimal("100"), "1");
         service.addExpense(wallet, "food", new BigDecimal("50"), "2");
 
-        BigDecimal total = service.expensesForCategory(wallet, "FOOD");
-        assertEquals(new BigDecimal("150.00"), total);
+        Money total = service.expensesForCategory(wallet, "FOOD");
+        assertEquals(Money.of(new BigDecimal("150.00")), total);
+    }
+
+    @Test
+    void remainingBudgetAndTrendAreMonthly() {
+        YearMonth current = YearMonth.now();
+        wallet.addTransaction(new Transaction("Food", new BigDecimal("300"), TransactionType.EXPENSE, "",
+                current.minusMonths(1).atDay(15).atStartOfDay(), ""));
+        service.addExpense(wallet, "food", new BigDecimal("50"), "");
+        service.addExpense(wallet, "Rent", new BigDecimal("500"), "");
+        service.setBudget(wallet, "Food", new BigDecimal("200"));
+
+        assertEquals(Money.of(new BigDecimal("150")), service.remainingBudget(wallet, "FOOD"));
+        assertEquals(Money.of(new BigDecimal("-100")), service.remainingBudget(wallet, "Food", current.minusMonths(1)));
+
+        Map<YearMonth, Money> trend = service.expenseTrend(wallet, "Food", current, 3);
+        assertEquals(List.of(current.minusMonths(2), current.minusMonths(1), current), List.copyOf(trend.keySet()));
+        assertEquals(List.of(Money.of(BigDecimal.ZERO), Money.of(new BigDecimal("300")), Money.of(new BigDecimal("50"))),
+                List.copyOf(trend.values()));
+        assertEquals(Money.of(new BigDecimal("550")), service.expenseTrend(wallet, null, current, 1).get(current));
+    }
+
+    @Test
+    void outgoingTransfersUseUpTheMonthlyBudget() {
+        YearMonth current = YearMonth.now();
+        service.setBudget(wallet, "Gifts", new BigDecimal("100"));
+        service.registerTransferOut(wallet, "gifts", new BigDecimal("90"), "b");
+        service.addExpense(wallet, "Gifts", new BigDecimal("5"), "");
+        service.registerTransferIn(wallet, "Gifts", new BigDecimal("20"), "c");
+
+        assertEquals(Money.of(new BigDecimal("5")), service.remainingBudget(wallet, "Gifts"));
+        assertEquals(Money.of(new BigDecimal("95")), service.expensesForCategory(wallet, "Gifts", current));
+        assertEquals(Money.of(new BigDecimal("95")), wallet.categoryTotals("GIFTS", current).expense());
+        assertEquals(Money.of(new BigDecimal("20")), wallet.categoryTotals("GIFTS", current).income());
+        assertEquals(Money.of(new BigDecimal("95")), service.expenseTrend(wallet, null, current, 1).get(current));
     }
 
     @Test
@@ -71,7 +116,32 @@ class WalletServiceTest {
         service.registerTransferOut(wallet, "Перевод", new BigDecimal("200"), "b");
         service.registerTransferIn(second, "Перевод", new BigDecimal("200"), "a");
 
-        assertEquals(new BigDecimal("200.00"), service.totalExpense(wallet));
-        assertEquals(new BigDecimal("200.00"), service.totalIncome(second));
+        assertEquals(Money.of(new BigDecimal("200.00")), service.totalExpense(wallet));
+        assertEquals(Money.of(new BigDecimal("200.00")), service.totalIncome(second));
+    }
+
+    @Test
+    void listTransactionsPagesThroughFilteredTimeline() {
+        LocalDateTime start = LocalDateTime.of(2024, 2, 1, 8, 0);
+        for (int i = 0; i < 10; i++) {
+            wallet.addTransaction(new Transaction(i % 2 == 0 ? "Food" : "Taxi", new BigDecimal("10"),
+                    TransactionType.EXPENSE, "n" + i, start.plusDays(i), ""));
+        }
+
+        TransactionPage second = service.listTransactions(wallet, TransactionQuery.ALL, 2, 3);
+        assertEquals(List.of("n3", "n4", "n5"), notes(second));
+        assertTrue(second.hasNext());
+
+        TransactionQuery food = new TransactionQuery(start.plusDays(1), start.plusDays(9), "FOOD");
+        TransactionPage first = service.listTransactions(wallet, food, 1, 2);
+        assertEquals(List.of("n2", "n4"), notes(first));
+        TransactionPage next = service.listTransactionsFrom(wallet, food, first.nextCursor(), 2);
+        assertEquals(List.of("n6", "n8"), notes(next));
+        assertFalse(next.hasNext());
+        assertEquals(next.items(), service.listTransactions(wallet, food, 2, 2).items());
+    }
+
+    private static List<String> notes(TransactionPage page) {
+        return page.items().stream().map(Transaction::getNote).toList();
     }
 }
@@ -0,0 +1,93 @@
+package financeapp.service;
+
+import financeapp.model.Wallet;
+import financeapp.persistence.WalletStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindSaverTest {
+
+    @Test
+    void repeatedSavesCoalesceUntilFlush() {
+        CountingStore store = new CountingStore();
+        WalletService service = new WalletService(store, new LoginLocks(),
+                new WriteBehindSaver(store, new LoginLocks(), Duration.ofHours(1), WriteBehindSaver.Fsync.BATCH));
+        Wallet wallet = new Wallet();
+
+        service.saveWallet("alice", wallet);
+        service.saveWallet("alice", wallet);
+        service.saveWallet("alice", wallet);
+        assertEquals(0, store.saves.get());
+
+        service.closeSession("alice");
+
+        assertEquals(1, store.saves.get());
+        assertEquals(1, store.syncs.get());
+        assertSame(wallet, store.wallets.get("alice"));
+    }
+
+    @Test
+    void loadPrefersWalletStillWaitingToBeWritten() {
+        CountingStore store = new CountingStore();
+        LoginLocks locks = new LoginLocks();
+        WalletService service = new WalletService(store, locks,
+                new WriteBehindSaver(store, locks, Duration.ofHours(1), WriteBehindSaver.Fsync.NONE));
+        Wallet pending = new Wallet();
+
+        service.saveWallet("bob", pending);
+
+        assertSame(pending, service.loadWallet("bob"));
+        service.flush();
+        assertEquals(1, store.saves.get());
+    }
+
+    @Test
+    void backgroundFlushWritesWithinLatencyBound() throws InterruptedException {
+        CountingStore store = new CountingStore();
+        try (WriteBehindSaver saver = new WriteBehindSaver(store, new LoginLocks(), Duration.ofMillis(20),
+                WriteBehindSaver.Fsync.NONE)) {
+            saver.markDirty("alice", new Wallet());
+            saver.markDirty("bob", new Wallet());
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (store.saves.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(2, store.saves.get());
+            assertEquals(0, store.syncs.get());
+            assertEquals(0, saver.stats().pending());
+            assertTrue(saver.stats().writes() <= saver.stats().saveRequests());
+        }
+    }
+
+    private static final class CountingStore implements WalletStore {
+        private final Map<String, Wallet> wallets = new ConcurrentHashMap<>();
+        private final AtomicInteger saves = new AtomicInteger();
+        private final AtomicInteger syncs = new AtomicInteger();
+
+        @Override
+        public Wallet load(String login) {
+            return wallets.getOrDefault(login, new Wallet());
+        }
+
+        @Override
+        public void save(String login, Wallet wallet) {
+            wallets.put(login, wallet);
+            saves.incrementAndGet();
+        }
+
+        @Override
+        public void sync(String login) {
+            syncs.incrementAndGet();
+        }
+    }
+}